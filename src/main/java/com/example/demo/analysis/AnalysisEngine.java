@@ -0,0 +1,16 @@
+package com.example.demo.analysis;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Estratégia de análise de um arquivo Java: identifica se ele é um controller e lista os endpoints que ele
+ * declara. Implementações devem ser thread-safe.
+ */
+public interface AnalysisEngine {
+
+    /**
+     * Extrai todos os endpoints do arquivo. Retorna vazio quando o arquivo não pôde ser analisado.
+     */
+    Optional<FileSummary> summarize(Path file, String source);
+}
@@ -0,0 +1,315 @@
+package com.example.demo.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Léxico mínimo de Java que extrai apenas anotações e cabeçalhos de declaração, sem montar a AST. Comentários,
+ * strings, text blocks e literais de caractere são reconhecidos para que seu conteúdo nunca seja confundido
+ * com código.
+ */
+final class AnnotationScanner {
+
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+    private static final Set<String> STATEMENT_KEYWORDS = Set.of(
+            "if", "for", "while", "switch", "catch", "synchronized", "return", "new", "throw", "try");
+
+    enum Kind {
+        IDENT, STRING, CHAR, NUMBER, SYMBOL
+    }
+
+    record Token(Kind kind, String text) {
+
+        boolean is(String symbol) {
+            return kind == Kind.SYMBOL && text.equals(symbol);
+        }
+
+        boolean isTextBlock() {
+            return kind == Kind.STRING && text.startsWith("\"\"\"");
+        }
+    }
+
+    record Annotation(String name, List<Token> arguments) {
+
+        /**
+         * Nome simples da anotação, sem o pacote ({@code @org.x.GetMapping} vira {@code GetMapping}).
+         */
+        String simpleName() {
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+
+        /**
+         * Expressões atribuídas aos membros informados. Arrays ({@code {"a", "b"}}) são abertos em uma
+         * expressão por elemento; a forma sem nome conta como o membro {@code value}.
+         */
+        List<List<Token>> values(Set<String> members) {
+            List<List<Token>> values = new ArrayList<>();
+            for (List<Token> pair : splitTopLevel(arguments, 0, arguments.size())) {
+                boolean named = pair.size() > 2 && pair.get(0).kind() == Kind.IDENT && pair.get(1).is("=");
+                String member = named ? pair.get(0).text() : "value";
+                if (!members.contains(member)) {
+                    continue;
+                }
+                List<Token> value = named ? pair.subList(2, pair.size()) : pair;
+                if (!value.isEmpty() && value.get(0).is("{") && value.get(value.size() - 1).is("}")) {
+                    values.addAll(splitTopLevel(value, 1, value.size() - 1));
+                } else {
+                    values.add(value);
+                }
+            }
+            return values;
+        }
+    }
+
+    record Method(String name, List<Annotation> annotations) {
+
+        Annotation annotation(String name) {
+            for (Annotation annotation : annotations) {
+                if (annotation.name().equals(name)) {
+                    return annotation;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param typeName        nome do primeiro tipo declarado no arquivo, ou null
+     * @param typeAnnotations anotações desse tipo
+     * @param constants       inicializadores dos campos declarados no corpo dos tipos, por nome do campo
+     */
+    record ScannedSource(List<Annotation> annotations, List<Method> methods, String typeName,
+            List<Annotation> typeAnnotations, Map<String, List<Token>> constants) {
+    }
+
+    private AnnotationScanner() {
+    }
+
+    static ScannedSource scan(String source) {
+        List<Token> tokens = tokenize(source);
+        List<Annotation> all = new ArrayList<>();
+        List<Method> methods = new ArrayList<>();
+
+        Map<String, List<Token>> constants = new HashMap<>();
+        // true para cada '{' aberto que inicia o corpo de um tipo
+        Deque<Boolean> typeBodies = new ArrayDeque<>();
+
+        String typeName = null;
+        List<Annotation> typeAnnotations = List.of();
+
+        List<Annotation> pending = new ArrayList<>();
+        boolean typeHeader = false;
+        boolean assignment = false;
+        int parenDepth = 0;
+        int parameterDepth = -1;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+
+            if (token.is("@")) {
+                if (i + 1 < tokens.size() && tokens.get(i + 1).text().equals("interface")) {
+                    typeHeader = true;
+                    if (typeName == null && i + 2 < tokens.size() && tokens.get(i + 2).kind() == Kind.IDENT) {
+                        typeName = tokens.get(i + 2).text();
+                        typeAnnotations = List.copyOf(pending);
+                    }
+                    i++;
+                    continue;
+                }
+                int end = readAnnotation(tokens, i, all);
+                if (parameterDepth < 0 && !assignment) {
+                    pending.add(all.get(all.size() - 1));
+                }
+                i = end;
+                continue;
+            }
+
+            if (token.kind() == Kind.IDENT) {
+                boolean qualified = i > 0 && tokens.get(i - 1).is(".");
+                if (TYPE_KEYWORDS.contains(token.text()) && !qualified) {
+                    typeHeader = true;
+                    if (typeName == null && i + 1 < tokens.size() && tokens.get(i + 1).kind() == Kind.IDENT) {
+                        typeName = tokens.get(i + 1).text();
+                        typeAnnotations = List.copyOf(pending);
+                    }
+                } else if (!pending.isEmpty() && !typeHeader && !assignment && parameterDepth < 0
+                        && !STATEMENT_KEYWORDS.contains(token.text())
+                        && i + 1 < tokens.size() && tokens.get(i + 1).is("(")) {
+                    methods.add(new Method(token.text(), List.copyOf(pending)));
+                    pending.clear();
+                    parameterDepth = parenDepth;
+                }
+                continue;
+            }
+
+            if (token.is("(")) {
+                parenDepth++;
+            } else if (token.is(")")) {
+                parenDepth--;
+                if (parenDepth == parameterDepth) {
+                    parameterDepth = -1;
+                }
+            } else if (token.is("=") && parameterDepth < 0) {
+                if (!assignment && parenDepth == 0 && Boolean.TRUE.equals(typeBodies.peek()) && i > 0
+                        && tokens.get(i - 1).kind() == Kind.IDENT) {
+                    constants.putIfAbsent(tokens.get(i - 1).text(), initializer(tokens, i + 1));
+                }
+                assignment = true;
+            } else if (token.is(",") && parenDepth == 0) {
+                // declaração múltipla: "A = "x", B = "y";"
+                assignment = false;
+            } else if (token.is("{") || token.is("}") || token.is(";")) {
+                if (token.is("{")) {
+                    typeBodies.push(typeHeader);
+                } else if (token.is("}") && !typeBodies.isEmpty()) {
+                    typeBodies.pop();
+                }
+                pending.clear();
+                typeHeader = false;
+                assignment = false;
+            }
+        }
+        return new ScannedSource(all, methods, typeName, typeAnnotations, constants);
+    }
+
+    /**
+     * Tokens do inicializador que começa em {@code start}, até o ';' ou ',' do mesmo nível.
+     */
+    private static List<Token> initializer(List<Token> tokens, int start) {
+        int depth = 0;
+        int i = start;
+        for (; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is("(") || token.is("{") || token.is("[")) {
+                depth++;
+            } else if (token.is(")") || token.is("}") || token.is("]")) {
+                if (--depth < 0) {
+                    break;
+                }
+            } else if (depth == 0 && (token.is(";") || token.is(","))) {
+                break;
+            }
+        }
+        return tokens.subList(start, i);
+    }
+
+    /**
+     * Divide {@code tokens[from, to)} nas vírgulas que não estão dentro de parênteses ou chaves.
+     */
+    private static List<List<Token>> splitTopLevel(List<Token> tokens, int from, int to) {
+        List<List<Token>> parts = new ArrayList<>();
+        int depth = 0;
+        int partStart = from;
+        for (int i = from; i < to; i++) {
+            Token token = tokens.get(i);
+            if (token.is("(") || token.is("{")) {
+                depth++;
+            } else if (token.is(")") || token.is("}")) {
+                depth--;
+            } else if (token.is(",") && depth == 0) {
+                if (i > partStart) {
+                    parts.add(tokens.subList(partStart, i));
+                }
+                partStart = i + 1;
+            }
+        }
+        if (to > partStart) {
+            parts.add(tokens.subList(partStart, to));
+        }
+        return parts;
+    }
+
+    /**
+     * Lê a anotação que começa em {@code start} (o token '@') e devolve o índice do seu último token.
+     */
+    private static int readAnnotation(List<Token> tokens, int start, List<Annotation> target) {
+        StringBuilder name = new StringBuilder();
+        int i = start + 1;
+        if (i < tokens.size() && tokens.get(i).kind() == Kind.IDENT) {
+            name.append(tokens.get(i++).text());
+            while (i + 1 < tokens.size() && tokens.get(i).is(".") && tokens.get(i + 1).kind() == Kind.IDENT) {
+                name.append('.').append(tokens.get(i + 1).text());
+                i += 2;
+            }
+        }
+
+        List<Token> arguments = List.of();
+        if (i < tokens.size() && tokens.get(i).is("(")) {
+            int depth = 0;
+            int argumentsStart = i + 1;
+            for (; i < tokens.size(); i++) {
+                if (tokens.get(i).is("(")) {
+                    depth++;
+                } else if (tokens.get(i).is(")") && --depth == 0) {
+                    break;
+                }
+            }
+            arguments = tokens.subList(argumentsStart, Math.min(i, tokens.size()));
+            target.add(new Annotation(name.toString(), arguments));
+            return i;
+        }
+        target.add(new Annotation(name.toString(), arguments));
+        return i - 1;
+    }
+
+    static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int length = source.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = source.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (source.startsWith("\"\"\"", i)) {
+                int end = i + 3;
+                while (end < length && !source.startsWith("\"\"\"", end)) {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 3, length);
+                tokens.add(new Token(Kind.STRING, source.substring(i, end)));
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < length && source.charAt(end) != c && source.charAt(end) != '\n') {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, length);
+                tokens.add(new Token(c == '"' ? Kind.STRING : Kind.CHAR, source.substring(i, end)));
+                i = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                tokens.add(new Token(Kind.IDENT, source.substring(i, end)));
+                i = end;
+            } else if (Character.isDigit(c)) {
+                int end = i + 1;
+                while (end < length && (Character.isJavaIdentifierPart(source.charAt(end))
+                        || source.charAt(end) == '.')) {
+                    end++;
+                }
+                tokens.add(new Token(Kind.NUMBER, source.substring(i, end)));
+                i = end;
+            } else {
+                tokens.add(new Token(Kind.SYMBOL, String.valueOf(c)));
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.analysis;
+
+import com.example.demo.analysis.AnnotationScanner.Annotation;
+import com.example.demo.analysis.AnnotationScanner.Kind;
+import com.example.demo.analysis.AnnotationScanner.Method;
+import com.example.demo.analysis.AnnotationScanner.ScannedSource;
+import com.example.demo.analysis.AnnotationScanner.Token;
+import com.example.demo.analysis.AnnotationValues.ValueMatcher;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Engine leve que lê apenas anotações e cabeçalhos de métodos, sem construir a AST. Segue as mesmas regras
+ * de extração do {@link JavaParserEngine}.
+ */
+public class AnnotationScannerEngine implements AnalysisEngine {
+    private static final Set<String> METHOD_MEMBERS = Set.of("method");
+
+    @Override
+    public Optional<FileSummary> summarize(Path file, String source) {
+        ScannedSource scanned = AnnotationScanner.scan(source);
+        if (!isController(scanned)) {
+            return Optional.of(FileSummary.NOT_CONTROLLER);
+        }
+
+        Map<String, List<Token>> constants = scanned.constants();
+        String className = scanned.typeName() != null ? scanned.typeName() : FileSummary.simpleClassName(file);
+        List<String> prefixes = classPrefixes(scanned.typeAnnotations(), constants);
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (Method method : scanned.methods()) {
+            String httpMethod = null;
+            List<String> paths = new ArrayList<>();
+            List<String> scopes = new ArrayList<>();
+            for (Annotation annotation : method.annotations()) {
+                String name = annotation.simpleName();
+                if (name.equals("PreAuthorize")) {
+                    anyValue(annotation.values(JavaParserEngine.SCOPE_MEMBERS), constants,
+                            ValueMatcher.collectingScopesInto(scopes));
+                } else if (JavaParserEngine.MAPPING_ANNOTATIONS.contains(name)) {
+                    if (httpMethod == null) {
+                        httpMethod = httpMethod(name, annotation);
+                    }
+                    anyValue(annotation.values(JavaParserEngine.PATH_MEMBERS), constants,
+                            ValueMatcher.collectingInto(paths));
+                }
+            }
+            FileSummary.addEndpoints(endpoints, file, className, method.name(), httpMethod, prefixes, paths,
+                    scopes);
+        }
+        return Optional.of(new FileSummary(true, endpoints));
+    }
+
+    private static boolean isController(ScannedSource scanned) {
+        return scanned.annotations().stream()
+                .anyMatch(a -> a.simpleName().equals("RestController") || a.simpleName().equals("Controller"));
+    }
+
+    private static List<String> classPrefixes(List<Annotation> typeAnnotations,
+            Map<String, List<Token>> constants) {
+        List<String> prefixes = new ArrayList<>();
+        for (Annotation annotation : typeAnnotations) {
+            if (annotation.simpleName().equals("RequestMapping")) {
+                anyValue(annotation.values(JavaParserEngine.PATH_MEMBERS), constants,
+                        ValueMatcher.collectingInto(prefixes));
+                break;
+            }
+        }
+        return prefixes;
+    }
+
+    private static String httpMethod(String annotationName, Annotation annotation) {
+        if (!annotationName.equals("RequestMapping")) {
+            return annotationName.substring(0, annotationName.length() - "Mapping".length()).toUpperCase();
+        }
+        List<String> methods = new ArrayList<>();
+        for (List<Token> value : annotation.values(METHOD_MEMBERS)) {
+            Token last = value.get(value.size() - 1);
+            if (last.kind() == Kind.IDENT) {
+                methods.add(last.text());
+            }
+        }
+        return methods.isEmpty() ? Endpoint.ANY_METHOD : String.join(",", methods);
+    }
+
+    private static boolean anyValue(List<List<Token>> values, Map<String, List<Token>> constants,
+            ValueMatcher matcher) {
+        for (List<Token> value : values) {
+            if (value.size() == 1 && isPlainString(value.get(0))) {
+                // Caso mais comum: compara direto dentro do token, sem as aspas
+                String text = value.get(0).text();
+                if (matcher.matches(text, 1, text.length() - 1)) {
+                    return true;
+                }
+                continue;
+            }
+            String resolved = resolve(value, constants, 0);
+            if (resolved != null && matcher.matches(resolved, 0, resolved.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolve literais, constantes do próprio arquivo e concatenações com '+'. Devolve null para qualquer
+     * outra expressão.
+     */
+    private static String resolve(List<Token> expression, Map<String, List<Token>> constants, int depth) {
+        if (depth > 8 || expression.isEmpty()) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder();
+        int operandStart = 0;
+        for (int i = 0; i <= expression.size(); i++) {
+            if (i < expression.size() && !expression.get(i).is("+")) {
+                continue;
+            }
+            String operand = resolveOperand(expression.subList(operandStart, i), constants, depth);
+            if (operand == null) {
+                return null;
+            }
+            result.append(operand);
+            operandStart = i + 1;
+        }
+        return result.toString();
+    }
+
+    private static String resolveOperand(List<Token> operand, Map<String, List<Token>> constants, int depth) {
+        if (operand.size() == 1 && isPlainString(operand.get(0))) {
+            String text = operand.get(0).text();
+            return text.substring(1, text.length() - 1);
+        }
+        // NOME ou Tipo.NOME: vale o último identificador
+        for (int i = 0; i < operand.size(); i++) {
+            Token token = operand.get(i);
+            boolean expected = i % 2 == 0 ? token.kind() == Kind.IDENT : token.is(".");
+            if (!expected) {
+                return null;
+            }
+        }
+        if (operand.size() % 2 == 0) {
+            return null;
+        }
+        List<Token> initializer = constants.get(operand.get(operand.size() - 1).text());
+        return initializer != null ? resolve(initializer, constants, depth + 1) : null;
+    }
+
+    private static boolean isPlainString(Token token) {
+        return token.kind() == Kind.STRING && !token.isTextBlock() && token.text().length() >= 2;
+    }
+}
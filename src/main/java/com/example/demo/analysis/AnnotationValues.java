@@ -0,0 +1,85 @@
+package com.example.demo.analysis;
+
+import java.util.List;
+
+/**
+ * Leitura dos valores extraídos das anotações. Os visitantes trabalham direto sobre trechos das strings, sem
+ * montar strings intermediárias.
+ */
+final class AnnotationValues {
+
+    private static final String SCOPE_FUNCTION = "oauth2.hasScope(";
+    private static final String ANY_SCOPE_FUNCTION = "oauth2.hasAnyScope(";
+
+    private AnnotationValues() {
+    }
+
+    /**
+     * Visita os argumentos entre aspas simples de cada chamada a hasScope/hasAnyScope do trecho, parando no
+     * primeiro para o qual o visitante devolver true.
+     */
+    private static boolean forEachScope(String expression, int start, int end, ValueMatcher visitor) {
+        return forEachArgument(expression, start, end, SCOPE_FUNCTION, visitor)
+                || forEachArgument(expression, start, end, ANY_SCOPE_FUNCTION, visitor);
+    }
+
+    private static boolean forEachArgument(String expression, int start, int end, String function,
+            ValueMatcher visitor) {
+        int call = expression.indexOf(function, start);
+        while (call >= 0 && call + function.length() <= end) {
+            int i = call + function.length();
+            while (i < end) {
+                i = skipSpaces(expression, i, end);
+                if (i >= end || expression.charAt(i) != '\'') {
+                    break;
+                }
+                int close = expression.indexOf('\'', i + 1);
+                if (close < 0 || close >= end) {
+                    break;
+                }
+                if (visitor.matches(expression, i + 1, close)) {
+                    return true;
+                }
+                i = skipSpaces(expression, close + 1, end);
+                if (i >= end || expression.charAt(i) != ',') {
+                    break;
+                }
+                i++;
+            }
+            call = expression.indexOf(function, call + function.length());
+        }
+        return false;
+    }
+
+    private static int skipSpaces(String value, int i, int end) {
+        while (i < end && Character.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @FunctionalInterface
+    interface ValueMatcher {
+        boolean matches(String value, int start, int end);
+
+        /**
+         * Visitante que copia cada valor para a lista e nunca interrompe a visita.
+         */
+        static ValueMatcher collectingInto(List<String> target) {
+            return (value, start, end) -> {
+                target.add(value.substring(start, end));
+                return false;
+            };
+        }
+
+        /**
+         * Visitante que copia para a lista os scopes de cada expressão SpEL visitada.
+         */
+        static ValueMatcher collectingScopesInto(List<String> target) {
+            return (value, start, end) -> {
+                forEachScope(value, start, end, collectingInto(target));
+                return false;
+            };
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.analysis;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Método de controller encontrado na análise de um arquivo.
+ *
+ * @param className  nome do tipo que declara o método
+ * @param httpMethod verbo HTTP do mapeamento ("ANY" para {@code @RequestMapping} sem method, null sem mapeamento)
+ * @param path       path declarado no próprio método, ou null quando o mapeamento não informa path
+ * @param fullPath   path combinado com o {@code @RequestMapping} da classe, ou null sem mapeamento
+ * @param scopes     scopes exigidos pelo {@code @PreAuthorize} do método
+ */
+public record Endpoint(Path file, String className, String methodName, String httpMethod, String path,
+        String fullPath, List<String> scopes) {
+
+    public static final String ANY_METHOD = "ANY";
+
+    public Endpoint withFile(Path newFile) {
+        return new Endpoint(newFile, className, methodName, httpMethod, path, fullPath, scopes);
+    }
+
+    /**
+     * Junta o prefixo da classe ao path do método, garantindo uma única barra entre eles.
+     */
+    public static String joinPaths(String prefix, String path) {
+        String left = prefix == null ? "" : prefix.trim();
+        String right = path == null ? "" : path.trim();
+        if (left.endsWith("/")) {
+            left = left.substring(0, left.length() - 1);
+        }
+        if (!left.isEmpty() && !left.startsWith("/")) {
+            left = "/" + left;
+        }
+        if (!right.isEmpty() && !right.startsWith("/")) {
+            right = "/" + right;
+        }
+        String joined = left + right;
+        return joined.isEmpty() ? "/" : joined;
+    }
+}
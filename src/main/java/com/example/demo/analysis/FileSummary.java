@@ -0,0 +1,59 @@
+package com.example.demo.analysis;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado da análise de um arquivo independente de consulta: os endpoints que ele declara.
+ */
+public record FileSummary(boolean controller, List<Endpoint> endpoints) {
+
+    public static final FileSummary NOT_CONTROLLER = new FileSummary(false, List.of());
+
+    /**
+     * Mesmo resumo apontando para {@code file}: usado ao reaproveitar o resultado de um arquivo com conteúdo
+     * idêntico em outro snapshot.
+     */
+    public FileSummary relocate(Path file) {
+        if (endpoints.isEmpty() || endpoints.get(0).file().equals(file)) {
+            return this;
+        }
+        return new FileSummary(controller, endpoints.stream().map(e -> e.withFile(file)).toList());
+    }
+
+    /**
+     * Adiciona as entradas de um método: uma por combinação de prefixo da classe com path declarado, ou uma
+     * por prefixo quando o mapeamento não tem path. Métodos sem mapeamento e sem scope não geram entradas.
+     */
+    static void addEndpoints(List<Endpoint> target, Path file, String className, String methodName,
+            String httpMethod, List<String> prefixes, List<String> paths, List<String> scopes) {
+        if (httpMethod == null && paths.isEmpty() && scopes.isEmpty()) {
+            return;
+        }
+        List<String> methodScopes = List.copyOf(scopes);
+        if (httpMethod == null && paths.isEmpty()) {
+            // Só scope, sem mapeamento: não há path a combinar com os prefixos
+            target.add(new Endpoint(file, className, methodName, null, null, null, methodScopes));
+            return;
+        }
+        // Sem @RequestMapping na classe, os paths do método valem a partir da raiz
+        List<String> classPrefixes = prefixes.isEmpty() ? Collections.singletonList(null) : prefixes;
+        for (String prefix : classPrefixes) {
+            if (paths.isEmpty()) {
+                target.add(new Endpoint(file, className, methodName, httpMethod, null,
+                        Endpoint.joinPaths(prefix, null), methodScopes));
+                continue;
+            }
+            for (String path : paths) {
+                target.add(new Endpoint(file, className, methodName, httpMethod, path,
+                        Endpoint.joinPaths(prefix, path), methodScopes));
+            }
+        }
+    }
+
+    static String simpleClassName(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".java") ? name.substring(0, name.length() - 5) : name;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.analysis;
+
+import com.example.demo.analysis.AnnotationValues.ValueMatcher;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MemberValuePair;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Engine baseada na AST completa do JavaParser. Os valores das anotações são lidos dos nós de literal e de
+ * member-value pairs, sem passar pelo pretty printer.
+ */
+public class JavaParserEngine implements AnalysisEngine {
+    private static final Logger log = LoggerFactory.getLogger(JavaParserEngine.class);
+
+    static final Set<String> MAPPING_ANNOTATIONS = Set.of(
+            "GetMapping", "PostMapping", "PutMapping", "DeleteMapping", "PatchMapping", "RequestMapping");
+    static final Set<String> PATH_MEMBERS = Set.of("value", "path");
+    static final Set<String> SCOPE_MEMBERS = Set.of("value");
+
+    // JavaParser não é thread-safe: cada thread usa a sua instância
+    private final ThreadLocal<JavaParser> javaParser = ThreadLocal.withInitial(JavaParser::new);
+
+    @Override
+    public Optional<FileSummary> summarize(Path file, String source) {
+        Optional<CompilationUnit> parsed = parse(file, source);
+        if (parsed.isEmpty()) {
+            return Optional.empty();
+        }
+        CompilationUnit cu = parsed.get();
+        if (!isController(cu)) {
+            return Optional.of(FileSummary.NOT_CONTROLLER);
+        }
+
+        Constants constants = new Constants(cu);
+        TypeDeclaration<?> type = cu.getTypes().isEmpty() ? null : cu.getType(0);
+        String className = type != null ? type.getNameAsString() : FileSummary.simpleClassName(file);
+        List<String> prefixes = type != null ? classPrefixes(type, constants) : List.of();
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            String httpMethod = null;
+            List<String> paths = new ArrayList<>();
+            List<String> scopes = new ArrayList<>();
+            for (AnnotationExpr annotation : method.getAnnotations()) {
+                String name = annotation.getName().getIdentifier();
+                if (name.equals("PreAuthorize")) {
+                    anyMemberValue(annotation, SCOPE_MEMBERS, constants, ValueMatcher.collectingScopesInto(scopes));
+                } else if (MAPPING_ANNOTATIONS.contains(name)) {
+                    if (httpMethod == null) {
+                        httpMethod = httpMethod(name, annotation);
+                    }
+                    anyMemberValue(annotation, PATH_MEMBERS, constants, ValueMatcher.collectingInto(paths));
+                }
+            }
+            FileSummary.addEndpoints(endpoints, file, className, method.getNameAsString(), httpMethod, prefixes, paths,
+                    scopes);
+        }
+        return Optional.of(new FileSummary(true, endpoints));
+    }
+
+    private Optional<CompilationUnit> parse(Path file, String source) {
+        ParseResult<CompilationUnit> parseResult = javaParser.get().parse(source);
+        if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) {
+            log.debug("Falha ao analisar arquivo: {}", file);
+            return Optional.empty();
+        }
+        return parseResult.getResult();
+    }
+
+    private static boolean isController(CompilationUnit cu) {
+        return cu.findAll(AnnotationExpr.class).stream()
+                .map(a -> a.getName().getIdentifier())
+                .anyMatch(name -> name.equals("RestController") || name.equals("Controller"));
+    }
+
+    private static List<String> classPrefixes(TypeDeclaration<?> type, Constants constants) {
+        List<String> prefixes = new ArrayList<>();
+        for (AnnotationExpr annotation : type.getAnnotations()) {
+            if (annotation.getName().getIdentifier().equals("RequestMapping")) {
+                anyMemberValue(annotation, PATH_MEMBERS, constants, ValueMatcher.collectingInto(prefixes));
+                break;
+            }
+        }
+        return prefixes;
+    }
+
+    private static String httpMethod(String annotationName, AnnotationExpr annotation) {
+        if (!annotationName.equals("RequestMapping")) {
+            return annotationName.substring(0, annotationName.length() - "Mapping".length()).toUpperCase();
+        }
+        List<String> methods = new ArrayList<>();
+        if (annotation instanceof NormalAnnotationExpr normal) {
+            for (MemberValuePair pair : normal.getPairs()) {
+                if (pair.getNameAsString().equals("method")) {
+                    Expression value = pair.getValue();
+                    List<Expression> elements = value instanceof ArrayInitializerExpr array
+                            ? array.getValues()
+                            : List.of(value);
+                    for (Expression element : elements) {
+                        if (element instanceof FieldAccessExpr access) {
+                            methods.add(access.getNameAsString());
+                        } else if (element instanceof NameExpr name) {
+                            methods.add(name.getNameAsString());
+                        }
+                    }
+                }
+            }
+        }
+        return methods.isEmpty() ? Endpoint.ANY_METHOD : String.join(",", methods);
+    }
+
+    private static boolean anyMemberValue(AnnotationExpr annotation, Set<String> members, Constants constants,
+            ValueMatcher matcher) {
+        if (annotation instanceof SingleMemberAnnotationExpr single) {
+            return members.contains("value") && anyValue(single.getMemberValue(), constants, matcher);
+        }
+        if (annotation instanceof NormalAnnotationExpr normal) {
+            for (MemberValuePair pair : normal.getPairs()) {
+                if (members.contains(pair.getNameAsString()) && anyValue(pair.getValue(), constants, matcher)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyValue(Expression value, Constants constants, ValueMatcher matcher) {
+        if (value instanceof ArrayInitializerExpr array) {
+            for (Expression element : array.getValues()) {
+                if (anyValue(element, constants, matcher)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String resolved = constants.resolve(value);
+        return resolved != null && matcher.matches(resolved, 0, resolved.length());
+    }
+
+    /**
+     * Constantes String declaradas no próprio arquivo, resolvidas sob demanda.
+     */
+    private static final class Constants {
+
+        private final CompilationUnit cu;
+        private Map<String, Expression> initializers;
+
+        Constants(CompilationUnit cu) {
+            this.cu = cu;
+        }
+
+        String resolve(Expression value) {
+            return resolve(value, 0);
+        }
+
+        private String resolve(Expression value, int depth) {
+            if (depth > 8) {
+                return null;
+            }
+            if (value instanceof StringLiteralExpr literal) {
+                return literal.getValue();
+            }
+            if (value instanceof NameExpr name) {
+                return resolveConstant(name.getNameAsString(), depth);
+            }
+            if (value instanceof FieldAccessExpr access) {
+                return resolveConstant(access.getNameAsString(), depth);
+            }
+            if (value instanceof BinaryExpr binary && binary.getOperator() == BinaryExpr.Operator.PLUS) {
+                String left = resolve(binary.getLeft(), depth + 1);
+                String right = left != null ? resolve(binary.getRight(), depth + 1) : null;
+                return right != null ? left + right : null;
+            }
+            return null;
+        }
+
+        private String resolveConstant(String name, int depth) {
+            if (initializers == null) {
+                initializers = new HashMap<>();
+                for (FieldDeclaration field : cu.findAll(FieldDeclaration.class)) {
+                    for (VariableDeclarator variable : field.getVariables()) {
+                        variable.getInitializer().ifPresent(init -> initializers.putIfAbsent(
+                                variable.getNameAsString(), init));
+                    }
+                }
+            }
+            Expression initializer = initializers.get(name);
+            return initializer != null ? resolve(initializer, depth + 1) : null;
+        }
+    }
+}
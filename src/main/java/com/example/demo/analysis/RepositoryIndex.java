@@ -0,0 +1,153 @@
+package com.example.demo.analysis;
+
+import com.example.demo.dto.ControllerMatch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Índice dos endpoints de um snapshot do repositório, montado uma única vez e consultado por scope, path ou
+ * classe sem reler os fontes. Imutável e seguro para uso concorrente.
+ */
+public final class RepositoryIndex {
+
+    private final List<Entry> entries;
+    private final List<Endpoint> endpoints;
+    private final Map<String, FileSummary> summariesByHash = new HashMap<>();
+    private final Map<String, List<Endpoint>> byScope = new HashMap<>();
+    private final Map<String, List<Endpoint>> byPath = new HashMap<>();
+    private final Map<String, Path> classFiles = new HashMap<>();
+    private final RouteTrie routes;
+
+    /**
+     * Resumo de um arquivo do snapshot junto com o hash do seu conteúdo.
+     */
+    public record Entry(Path file, String contentHash, FileSummary summary) {
+    }
+
+    private RepositoryIndex(List<Entry> entries) {
+        this.entries = entries;
+        List<Endpoint> all = new ArrayList<>();
+        for (Entry entry : entries) {
+            all.addAll(entry.summary().endpoints());
+            summariesByHash.putIfAbsent(entry.contentHash(), entry.summary());
+        }
+        this.endpoints = List.copyOf(all);
+        for (Endpoint endpoint : this.endpoints) {
+            classFiles.putIfAbsent(endpoint.className(), endpoint.file());
+            for (String scope : endpoint.scopes()) {
+                add(byScope, scope, endpoint);
+            }
+            if (endpoint.path() != null) {
+                add(byPath, endpoint.path(), endpoint);
+            }
+        }
+        this.routes = RouteTrie.of(this.endpoints);
+    }
+
+    /**
+     * Monta o índice a partir dos resumos de cada arquivo, na ordem recebida. Arquivos que não são controllers
+     * também entram, para que seu hash possa ser reaproveitado.
+     */
+    public static RepositoryIndex of(Collection<Entry> entries) {
+        return new RepositoryIndex(List.copyOf(entries));
+    }
+
+    /**
+     * Mesmo índice com os arquivos resolvidos a partir de outra raiz: {@code from} é a raiz atual (vazia
+     * para índices com caminhos relativos) e {@code to} a nova.
+     */
+    public RepositoryIndex rebase(Path from, Path to) {
+        List<Entry> rebased = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Path file = to.resolve(from.relativize(entry.file()).toString());
+            rebased.add(new Entry(file, entry.contentHash(), entry.summary().relocate(file)));
+        }
+        return new RepositoryIndex(rebased);
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Resumo já calculado para um arquivo com este conteúdo, apontando para {@code file}.
+     */
+    public Optional<FileSummary> summaryFor(String contentHash, Path file) {
+        FileSummary summary = summariesByHash.get(contentHash);
+        return summary != null ? Optional.of(summary.relocate(file)) : Optional.empty();
+    }
+
+    private static void add(Map<String, List<Endpoint>> index, String key, Endpoint endpoint) {
+        List<Endpoint> entries = index.computeIfAbsent(key, k -> new ArrayList<>(1));
+        // Um método com o mesmo scope repetido não gera entradas duplicadas
+        if (entries.isEmpty() || entries.get(entries.size() - 1) != endpoint) {
+            entries.add(endpoint);
+        }
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    public List<Endpoint> byScope(String scope) {
+        return scope == null ? List.of() : byScope.getOrDefault(scope, List.of());
+    }
+
+    public List<Endpoint> byPath(String path) {
+        return path == null ? List.of() : byPath.getOrDefault(path, List.of());
+    }
+
+    /**
+     * Rotas completas (prefixo da classe + método) para consultas por padrão, requisição ou sobreposição.
+     */
+    public RouteTrie routes() {
+        return routes;
+    }
+
+    public Optional<Path> fileOf(String className) {
+        return Optional.ofNullable(classFiles.get(className));
+    }
+
+    /**
+     * Visão por arquivo usada pelos processadores: um {@link ControllerMatch} para cada arquivo com o scope
+     * e/ou o path consultados, na ordem dos arquivos. O path é encontrado quando coincide com o declarado no
+     * método, com o padrão completo (variáveis com qualquer nome) ou quando uma requisição nesse path seria
+     * atendida por uma rota que não é catch-all.
+     */
+    public List<ControllerMatch> matches(String scope, String path) {
+        Map<Path, boolean[]> found = new TreeMap<>();
+        for (Endpoint endpoint : byScope(scope)) {
+            found.computeIfAbsent(endpoint.file(), f -> new boolean[2])[0] = true;
+        }
+        for (Endpoint endpoint : byPath(path)) {
+            found.computeIfAbsent(endpoint.file(), f -> new boolean[2])[1] = true;
+        }
+        if (path != null && !path.isBlank()) {
+            for (RouteTrie.Route route : routes.find(path)) {
+                found.computeIfAbsent(route.endpoint().file(), f -> new boolean[2])[1] = true;
+            }
+            for (RouteTrie.Route route : routes.match(null, path)) {
+                if (!route.catchAll()) {
+                    found.computeIfAbsent(route.endpoint().file(), f -> new boolean[2])[1] = true;
+                }
+            }
+        }
+
+        String matchedScope = scope != null ? scope : "";
+        List<ControllerMatch> matches = new ArrayList<>(found.size());
+        found.forEach((file, flags) -> matches.add(
+                new ControllerMatch(file, file.getFileName().toString(), flags[0], flags[1], matchedScope)));
+        return matches;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.analysis;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário do {@link RepositoryIndex}. Todas as strings ficam numa tabela única no início do arquivo e
+ * as entradas as referenciam por posição, o que deixa o arquivo pequeno (scopes, classes e verbos se repetem
+ * muito) e permite decodificar direto de um buffer mapeado.
+ *
+ * <pre>
+ * magic "RIDX" | versão | etag | nº strings | strings (tamanho + UTF-8)
+ * nº entradas | por entrada: arquivo, hash, controller, nº endpoints
+ *   por endpoint: classe, método, verbo, path, fullPath, nº scopes, scopes
+ * </pre>
+ * Caminhos são gravados relativos à raiz do snapshot; referências nulas usam -1.
+ */
+public final class RepositoryIndexCodec {
+
+    private static final int MAGIC = 0x52494458;
+    // 2: endpoints combinados com todos os prefixos do @RequestMapping da classe
+    static final int VERSION = 2;
+
+    /**
+     * Índice lido do disco, com os caminhos relativos à raiz do snapshot de origem.
+     */
+    public record Decoded(String etag, RepositoryIndex index) {
+    }
+
+    private RepositoryIndexCodec() {
+    }
+
+    public static void write(RepositoryIndex index, Path root, String etag, OutputStream target) throws IOException {
+        StringTable strings = new StringTable();
+        strings.add(etag);
+        for (RepositoryIndex.Entry entry : index.entries()) {
+            strings.add(root.relativize(entry.file()).toString());
+            strings.add(entry.contentHash());
+            for (Endpoint endpoint : entry.summary().endpoints()) {
+                strings.add(endpoint.className());
+                strings.add(endpoint.methodName());
+                strings.add(endpoint.httpMethod());
+                strings.add(endpoint.path());
+                strings.add(endpoint.fullPath());
+                endpoint.scopes().forEach(strings::add);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(strings.ref(etag));
+        out.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(index.entries().size());
+        for (RepositoryIndex.Entry entry : index.entries()) {
+            out.writeInt(strings.ref(root.relativize(entry.file()).toString()));
+            out.writeInt(strings.ref(entry.contentHash()));
+            out.writeBoolean(entry.summary().controller());
+            out.writeInt(entry.summary().endpoints().size());
+            for (Endpoint endpoint : entry.summary().endpoints()) {
+                out.writeInt(strings.ref(endpoint.className()));
+                out.writeInt(strings.ref(endpoint.methodName()));
+                out.writeInt(strings.ref(endpoint.httpMethod()));
+                out.writeInt(strings.ref(endpoint.path()));
+                out.writeInt(strings.ref(endpoint.fullPath()));
+                out.writeInt(endpoint.scopes().size());
+                for (String scope : endpoint.scopes()) {
+                    out.writeInt(strings.ref(scope));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Decodifica o índice a partir da posição atual do buffer.
+     *
+     * @throws IOException se o conteúdo não for um índice desta versão ou estiver truncado
+     */
+    public static Decoded read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Arquivo não é um índice de repositório");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versão de índice não suportada: " + version);
+            }
+            int etagRef = buffer.getInt();
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int entryCount = buffer.getInt();
+            List<RepositoryIndex.Entry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                Path file = Path.of(string(strings, buffer.getInt()));
+                String hash = string(strings, buffer.getInt());
+                boolean controller = buffer.get() != 0;
+                int endpointCount = buffer.getInt();
+                List<Endpoint> endpoints = new ArrayList<>(endpointCount);
+                for (int j = 0; j < endpointCount; j++) {
+                    String className = string(strings, buffer.getInt());
+                    String methodName = string(strings, buffer.getInt());
+                    String httpMethod = string(strings, buffer.getInt());
+                    String path = string(strings, buffer.getInt());
+                    String fullPath = string(strings, buffer.getInt());
+                    String[] scopes = new String[buffer.getInt()];
+                    for (int k = 0; k < scopes.length; k++) {
+                        scopes[k] = string(strings, buffer.getInt());
+                    }
+                    endpoints.add(new Endpoint(file, className, methodName, httpMethod, path, fullPath,
+                            List.of(scopes)));
+                }
+                FileSummary summary = controller ? new FileSummary(true, List.copyOf(endpoints))
+                        : FileSummary.NOT_CONTROLLER;
+                entries.add(new RepositoryIndex.Entry(file, hash, summary));
+            }
+            return new Decoded(string(strings, etagRef), RepositoryIndex.of(entries));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Índice de repositório corrompido", e);
+        }
+    }
+
+    private static String string(String[] strings, int ref) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static final class StringTable {
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> refs = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !refs.containsKey(value)) {
+                refs.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int ref(String value) {
+            return value == null ? -1 : refs.get(value);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.demo.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trie de segmentos com os paths completos (prefixo da classe + método) dos endpoints. Cada nível separa
+ * segmentos literais, segmentos variáveis ({@code {id}}, {@code *}, {@code file.{ext}}) e capturas do resto
+ * do path ({@code **}, {@code {*rest}}); a confirmação final usa o {@link PathPattern} do Spring, então a
+ * semântica é a mesma do roteamento real.
+ */
+public final class RouteTrie {
+    private static final Logger log = LoggerFactory.getLogger(RouteTrie.class);
+
+    private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+
+    /**
+     * Endpoint com o seu path completo já compilado.
+     */
+    public record Route(PathPattern pattern, Endpoint endpoint) {
+
+        /**
+         * Rotas que capturam o resto do path ({@code /api/**}) atendem qualquer sufixo e costumam ser fallbacks.
+         */
+        public boolean catchAll() {
+            String value = pattern.getPatternString();
+            return value.contains("**") || value.contains("{*");
+        }
+    }
+
+    /**
+     * Endpoint existente que atende parte dos paths de um novo padrão. {@code shadows} indica que o existente
+     * é mais específico e vence o roteamento nesses paths.
+     */
+    public record Overlap(Route route, boolean equivalent, boolean shadows) {
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        private final List<Route> routes = new ArrayList<>(1);
+        // Padrões terminados em ** ou {*var} a partir deste nível
+        private final List<Route> catchAll = new ArrayList<>(0);
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    private RouteTrie() {
+    }
+
+    public static RouteTrie of(Collection<Endpoint> endpoints) {
+        RouteTrie trie = new RouteTrie();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.fullPath() != null) {
+                trie.add(endpoint);
+            }
+        }
+        return trie;
+    }
+
+    private void add(Endpoint endpoint) {
+        PathPattern pattern;
+        try {
+            pattern = PARSER.parse(endpoint.fullPath());
+        } catch (PatternParseException e) {
+            log.debug("Path ignorado no índice de rotas ({}): {}", endpoint.fullPath(), e.getMessage());
+            return;
+        }
+        Route route = new Route(pattern, endpoint);
+        Node node = root;
+        for (String segment : segments(pattern.getPatternString())) {
+            if (isCatchAll(segment)) {
+                node.catchAll.add(route);
+                size++;
+                return;
+            }
+            node = isLiteral(segment)
+                    ? node.literals.computeIfAbsent(segment, s -> new Node())
+                    : node.variable != null ? node.variable : (node.variable = new Node());
+        }
+        node.routes.add(route);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Endpoints que atendem a requisição {@code method path}, do mais específico para o menos. Um método
+     * null aceita qualquer verbo; o path é normalizado como os padrões ({@code users/42} vale {@code /users/42}).
+     */
+    public List<Route> match(String method, String path) {
+        String requestPath = Endpoint.joinPaths(null, path);
+        List<Route> candidates = new ArrayList<>();
+        collectMatches(root, segments(requestPath), 0, candidates);
+
+        PathContainer container = PathContainer.parsePath(requestPath);
+        List<Route> matches = new ArrayList<>();
+        for (Route route : candidates) {
+            if (acceptsMethod(route, method) && route.pattern().matches(container)) {
+                matches.add(route);
+            }
+        }
+        matches.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.pattern(), b.pattern()));
+        return matches;
+    }
+
+    private static void collectMatches(Node node, List<String> segments, int depth, List<Route> target) {
+        target.addAll(node.catchAll);
+        if (depth == segments.size()) {
+            target.addAll(node.routes);
+            return;
+        }
+        Node literal = node.literals.get(segments.get(depth));
+        if (literal != null) {
+            collectMatches(literal, segments, depth + 1, target);
+        }
+        if (node.variable != null) {
+            collectMatches(node.variable, segments, depth + 1, target);
+        }
+    }
+
+    /**
+     * Endpoints cujo padrão é equivalente a {@code pattern}: mesmos segmentos, ignorando o nome das variáveis
+     * ({@code /users/{id}} equivale a {@code /users/{userId}}).
+     */
+    public List<Route> find(String pattern) {
+        PathPattern parsed = parse(pattern);
+        if (parsed == null) {
+            return List.of();
+        }
+        List<Route> found = new ArrayList<>();
+        for (Overlap overlap : overlapping(null, parsed)) {
+            if (overlap.equivalent()) {
+                found.add(overlap.route());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Endpoints existentes que atenderiam algum path também atendido por {@code pattern} no verbo informado
+     * (null para qualquer verbo). Útil para saber se um endpoint novo seria sombreado por um existente.
+     */
+    public List<Overlap> overlapping(String method, String pattern) {
+        PathPattern parsed = parse(pattern);
+        return parsed == null ? List.of() : overlapping(method, parsed);
+    }
+
+    private List<Overlap> overlapping(String method, PathPattern pattern) {
+        Set<Route> candidates = new LinkedHashSet<>();
+        collectOverlaps(root, segments(pattern.getPatternString()), 0, candidates);
+
+        String shape = shape(pattern);
+        List<Overlap> overlaps = new ArrayList<>();
+        for (Route route : candidates) {
+            if (!acceptsMethod(route, method)) {
+                continue;
+            }
+            boolean equivalent = shape(route.pattern()).equals(shape);
+            boolean shadows = !equivalent
+                    && PathPattern.SPECIFICITY_COMPARATOR.compare(route.pattern(), pattern) < 0;
+            overlaps.add(new Overlap(route, equivalent, shadows));
+        }
+        return overlaps;
+    }
+
+    private static void collectOverlaps(Node node, List<String> segments, int depth, Set<Route> target) {
+        target.addAll(node.catchAll);
+        if (depth == segments.size()) {
+            target.addAll(node.routes);
+            return;
+        }
+        String segment = segments.get(depth);
+        if (isCatchAll(segment)) {
+            collectSubtree(node, target);
+            return;
+        }
+        if (isLiteral(segment)) {
+            Node literal = node.literals.get(segment);
+            if (literal != null) {
+                collectOverlaps(literal, segments, depth + 1, target);
+            }
+        } else {
+            for (Node literal : node.literals.values()) {
+                collectOverlaps(literal, segments, depth + 1, target);
+            }
+        }
+        if (node.variable != null) {
+            collectOverlaps(node.variable, segments, depth + 1, target);
+        }
+    }
+
+    private static void collectSubtree(Node node, Set<Route> target) {
+        target.addAll(node.catchAll);
+        target.addAll(node.routes);
+        node.literals.values().forEach(child -> collectSubtree(child, target));
+        if (node.variable != null) {
+            collectSubtree(node.variable, target);
+        }
+    }
+
+    private static boolean acceptsMethod(Route route, String method) {
+        String declared = route.endpoint().httpMethod();
+        if (method == null || declared == null || declared.equals(Endpoint.ANY_METHOD)) {
+            return true;
+        }
+        for (String candidate : declared.split(",")) {
+            if (candidate.equalsIgnoreCase(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PathPattern parse(String pattern) {
+        try {
+            return PARSER.parse(Endpoint.joinPaths(null, pattern));
+        } catch (PatternParseException e) {
+            log.debug("Padrão de path inválido ({}): {}", pattern, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Padrão sem os nomes das variáveis, usado para comparar equivalência.
+     */
+    private static String shape(PathPattern pattern) {
+        StringBuilder shape = new StringBuilder();
+        for (String segment : segments(pattern.getPatternString())) {
+            shape.append('/');
+            if (isCatchAll(segment)) {
+                shape.append("**");
+            } else if (isLiteral(segment)) {
+                shape.append(segment);
+            } else {
+                shape.append(segment.replaceAll("\\{[^}:]+(:[^}]*)?}", "{$1}"));
+            }
+        }
+        return shape.toString();
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int slash = path.indexOf('/', start);
+            int end = slash < 0 ? length : slash;
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static boolean isCatchAll(String segment) {
+        return segment.equals("**") || segment.startsWith("{*");
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('{') < 0 && segment.indexOf('*') < 0 && segment.indexOf('?') < 0;
+    }
+}
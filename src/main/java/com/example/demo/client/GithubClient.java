@@ -1,59 +1,72 @@
 package com.example.demo.client;
 
+import com.example.demo.config.HttpClientFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.net.URI;
 import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
 
 @Component
 public class GithubClient {
 
     private static final Logger log = LoggerFactory.getLogger(GithubClient.class);
-    private static final int MAX_MEMORY_SIZE = 16 * 1024 * 1024; // 16MB
     private static final int TIMEOUT_SECONDS = 60;
+    private static final long PROGRESS_LOG_INTERVAL = 8 * 1024 * 1024; // 8MB
     private static final String DEFAULT_USER_AGENT = "Spring WebClient";
+    private static final Pattern VALID_REF = Pattern.compile("[A-Za-z0-9._/-]+");
 
     private final WebClient webClient;
+    private final Counter downloadedBytes;
+    private final MeterRegistry meterRegistry;
 
     // GitHub Configuration
     @Value("${github.repo.url}")
     private String githubRepoUrl;
 
-    @Value("${github.download.path}")
-    private String downloadPath;
+    @Value("${github.allowed-hosts}")
+    private Set<String> allowedHosts;
 
-    public GithubClient(WebClient.Builder webClientBuilder) {
-        // Configurando o WebClient para um tamanho máximo de 16MB e timeout de 60s
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(MAX_MEMORY_SIZE))
-                .build();
-
-        HttpClient httpClient = HttpClient.create()
-                .followRedirect(true) // Configurar para seguir redirecionamentos automaticamente
-                .responseTimeout(Duration.ofSeconds(TIMEOUT_SECONDS));
-
-        this.webClient = webClientBuilder
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .exchangeStrategies(strategies)
+    public GithubClient(HttpClientFactory httpClientFactory, MeterRegistry meterRegistry) {
+        // O corpo é consumido em streaming, então não há limite de memória para o arquivo; apenas timeout de 60s
+        this.webClient = httpClientFactory
+                .webClient("github", httpClient -> httpClient
+                        .followRedirect(true) // Configurar para seguir redirecionamentos automaticamente
+                        .responseTimeout(Duration.ofSeconds(TIMEOUT_SECONDS)))
                 .filter(logRequest())
                 .build();
+
+        this.downloadedBytes = Counter.builder("github.download.bytes")
+                .description("Bytes recebidos nos downloads de repositórios")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
     }
 
-    private Path getDefaultDownloadPath() {
-        return Paths.get(downloadPath != null ? downloadPath : "repo.zip");
+    // Do envio da requisição ao fim do corpo; com a extração em streaming, inclui o tempo de descompactação
+    private Timer downloadTimer(String status) {
+        return Timer.builder("github.download.duration")
+                .description("Duração dos downloads e revalidações de repositórios")
+                .tag("status", status)
+                .register(meterRegistry);
     }
 
     private ExchangeFilterFunction logRequest() {
@@ -63,64 +76,115 @@ public class GithubClient {
         });
     }
 
-    public Mono<String> downloadRepository() {
-        return downloadRepository(this.githubRepoUrl, getDefaultDownloadPath().toString());
+    public String getRepositoryUrl() {
+        return githubRepoUrl;
     }
 
-    public Mono<String> downloadRepository(String repoUrl) {
-        return downloadRepository(repoUrl, getDefaultDownloadPath().toString());
+    /**
+     * URL do arquivo zip de um repositório. {@code repoUrl} pode ser a página do repositório
+     * ({@code https://github.com/org/servico}, com ou sem {@code .git}) ou já o link de um arquivo {@code .zip};
+     * {@code ref} escolhe branch, tag ou commit (padrão: branch principal). Sem {@code repoUrl}, vale o
+     * repositório configurado.
+     *
+     * @throws IllegalArgumentException se a URL for inválida ou o host não estiver em {@code github.allowed-hosts}
+     */
+    public String resolveArchiveUrl(String repoUrl, String ref) {
+        boolean hasRef = ref != null && !ref.isBlank();
+        if (hasRef && (!VALID_REF.matcher(ref.trim()).matches() || ref.contains(".."))) {
+            throw new IllegalArgumentException("Ref inválida: " + ref);
+        }
+        if (repoUrl == null || repoUrl.isBlank()) {
+            if (!hasRef) {
+                return githubRepoUrl;
+            }
+            repoUrl = repositoryPage(githubRepoUrl);
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(repoUrl.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("URL de repositório inválida: " + repoUrl);
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null
+                || !allowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Repositório fora dos hosts permitidos: " + repoUrl);
+        }
+
+        if (uri.getRawPath() == null || uri.getRawPath().length() <= 1) {
+            throw new IllegalArgumentException("URL de repositório inválida: " + repoUrl);
+        }
+
+        // Query, fragmento, porta e credenciais são descartados
+        String url = "https://" + uri.getHost().toLowerCase(Locale.ROOT) + uri.getRawPath();
+        if (url.endsWith(".zip") && !hasRef) {
+            return url;
+        }
+        String page = repositoryPage(url);
+        return page + "/archive/" + (hasRef ? ref.trim() : "HEAD") + ".zip";
     }
 
-    public Mono<String> downloadRepository(String repoUrl, String destinationPath) {
-        log.info("Iniciando download do repositório: {}", repoUrl);
-        final Path zipPath = Paths.get(destinationPath);
+    // https://github.com/org/repo/archive/refs/heads/main.zip -> https://github.com/org/repo
+    private static String repositoryPage(String url) {
+        int archive = url.indexOf("/archive/");
+        String page = archive >= 0 ? url.substring(0, archive) : url;
+        while (page.endsWith("/")) {
+            page = page.substring(0, page.length() - 1);
+        }
+        return page.endsWith(".git") ? page.substring(0, page.length() - 4) : page;
+    }
 
-        return webClient.get()
-                .uri(repoUrl)
-                .header(HttpHeaders.USER_AGENT, DEFAULT_USER_AGENT)
-                .header(HttpHeaders.ACCEPT, "application/zip, application/octet-stream, */*")
-                .retrieve()
-                .onStatus(status -> !status.is2xxSuccessful(),
-                        response -> {
+    /**
+     * GET condicional do arquivo do repositório. Quando o servidor responde 304 para o ETag informado o
+     * resultado é vazio; caso contrário o corpo é entregue em streaming ao handler junto com o novo ETag.
+     */
+    public <T> Mono<T> downloadIfModified(String repoUrl, String etag,
+            BiFunction<String, Flux<DataBuffer>, Mono<T>> bodyHandler) {
+        return Mono.defer(() -> {
+            log.info("Verificando atualização do repositório: {} (ETag: {})", repoUrl, etag);
+            AtomicLong received = new AtomicLong();
+            AtomicReference<String> status = new AtomicReference<>("IO_ERROR");
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return archiveRequest(repoUrl, etag)
+                    .exchangeToMono(response -> {
+                        status.set(String.valueOf(response.statusCode().value()));
+                        if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                            log.info("Repositório não modificado desde o ETag {}", etag);
+                            return response.releaseBody().then(Mono.empty());
+                        }
+                        if (!response.statusCode().is2xxSuccessful()) {
                             log.error("Erro HTTP ao baixar repositório: {}", response.statusCode());
-                            return Mono.error(new RuntimeException("Erro HTTP: " + response.statusCode()));
-                        })
-                .bodyToMono(byte[].class)
-                .flatMap(bytes -> saveZipFile(bytes, zipPath))
-                .doOnSuccess(path -> log.info("Download concluído com sucesso: {}", path))
-                .doOnError(e -> log.error("Erro ao baixar repositório: {}", e.getMessage()))
-                .onErrorMap(e -> new RuntimeException("Falha ao baixar repositório: " + e.getMessage(), e));
+                            return response.releaseBody()
+                                    .then(Mono.error(new RuntimeException("Erro HTTP: " + response.statusCode())));
+                        }
+                        Flux<DataBuffer> body = response.bodyToFlux(DataBuffer.class)
+                                .doOnNext(buffer -> trackProgress(received, buffer.readableByteCount()))
+                                .doOnComplete(() -> log.info("Dados recebidos: {} bytes", received.get()));
+                        return bodyHandler.apply(response.headers().asHttpHeaders().getETag(), body);
+                    })
+                    .doOnTerminate(() -> sample.stop(downloadTimer(status.get())))
+                    .doOnCancel(() -> sample.stop(downloadTimer("CANCELLED")));
+        });
     }
 
-    private Mono<String> saveZipFile(byte[] bytes, Path zipPath) {
-        return Mono.fromCallable(() -> {
-            if (bytes == null || bytes.length == 0) {
-                throw new RuntimeException("Nenhum dado recebido do servidor");
-            }
-
-            log.info("Dados recebidos: {} bytes", bytes.length);
-
-            try {
-                // Garantir que o diretório pai existe
-                Path parentDir = zipPath.getParent();
-                if (parentDir != null && !Files.exists(parentDir)) {
-                    Files.createDirectories(parentDir);
-                }
-
-                // Deletar arquivo anterior se existir
-                Files.deleteIfExists(zipPath);
-
-                // Escrever bytes no arquivo
-                Files.write(zipPath, bytes);
-
-                long fileSize = Files.size(zipPath);
-                log.info("Arquivo salvo com sucesso: {} ({} bytes)", zipPath, fileSize);
+    private WebClient.RequestHeadersSpec<?> archiveRequest(String repoUrl, String etag) {
+        return webClient.get()
+                .uri(repoUrl)
+                .headers(headers -> {
+                    headers.set(HttpHeaders.USER_AGENT, DEFAULT_USER_AGENT);
+                    headers.set(HttpHeaders.ACCEPT, "application/zip, application/octet-stream, */*");
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                });
+    }
 
-                return zipPath.toString();
-            } catch (IOException e) {
-                log.error("Erro ao salvar arquivo ZIP em {}: {}", zipPath, e.getMessage());
-                throw new RuntimeException("Falha ao salvar arquivo ZIP em " + zipPath, e);
-            }
-        });
+    private void trackProgress(AtomicLong received, int chunkSize) {
+        downloadedBytes.increment(chunkSize);
+        long total = received.addAndGet(chunkSize);
+        if (total / PROGRESS_LOG_INTERVAL != (total - chunkSize) / PROGRESS_LOG_INTERVAL) {
+            log.debug("Download em andamento: {} bytes recebidos", total);
+        }
     }
-}
\ No newline at end of file
+}
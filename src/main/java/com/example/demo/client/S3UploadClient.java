@@ -1,36 +1,120 @@
 package com.example.demo.client;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.config.HttpClientFactory;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.util.ContentHash;
+import com.example.demo.util.ExpiringLruCache;
+import com.example.demo.util.InFlightRequests;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
 public class S3UploadClient {
+    private static final Logger log = LoggerFactory.getLogger(S3UploadClient.class);
+
+    // Campos do formulário pré-assinado que o S3 exige antes do arquivo
+    private static final List<String> FORM_FIELDS = List.of("key", "x-amz-algorithm", "x-amz-credential",
+            "x-amz-date", "x-amz-security-token", "policy", "x-amz-signature");
 
     private final WebClient webClient;
+    // Pool próprio para o S3 (http.pool.s3-upload.*): o número de conexões limita quantos uploads ficam em voo
+    private final WebClient uploadClient;
+    private final int expirationMinutes;
+
+    // upload_id por conteúdo + nome do arquivo. Só o id fica em cache: o buffer do snapshot (slab em memória ou
+    // arquivo mapeado) deixa de ser referenciado quando o upload termina
+    private final ExpiringLruCache<String, String> uploadIds;
+    // Uploads simultâneos do mesmo arquivo compartilham o que já está em andamento
+    private final InFlightRequests<String, String> inFlight;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public S3UploadClient(HttpClientFactory httpClientFactory, MeterRegistry meterRegistry,
+            @Value("${file.upload.expiration}") int expirationMinutes,
+            @Value("${file.upload.cache.max-entries}") int maxEntries,
+            @Value("${file.upload.cache.margin}") Duration margin) {
+        this.webClient = httpClientFactory.webClient("stackspot").build();
+        this.uploadClient = httpClientFactory.webClient("s3-upload").build();
+        this.expirationMinutes = expirationMinutes;
+        // O upload_id deixa de ser reutilizado um pouco antes de o arquivo expirar no servidor
+        Duration reuseFor = Duration.ofMinutes(expirationMinutes).minus(margin);
+        if (reuseFor.isZero() || reuseFor.isNegative()) {
+            throw new IllegalArgumentException("file.upload.cache.margin (" + margin
+                    + ") deve ser menor que file.upload.expiration (" + expirationMinutes + " min)");
+        }
+        this.uploadIds = new ExpiringLruCache<>(maxEntries, reuseFor);
+        this.inFlight = new InFlightRequests<>(Counter.builder("requests.coalesced")
+                .description("Chamadas atendidas por um trabalho idêntico já em andamento")
+                .tag("stage", "upload")
+                .register(meterRegistry));
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+    }
 
-    public S3UploadClient(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("upload.cache.requests")
+                .description("Consultas ao cache de uploads por conteúdo de arquivo")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @Value("${file.upload.endpoint}")
     private String fileUploadEndpoint;
 
-    public Mono<String> uploadFileToEndpoint(Path filePath, String jwt) {
+    /**
+     * Envia o arquivo e devolve o upload_id. Arquivos com o mesmo nome e conteúdo de um upload ainda válido
+     * reutilizam o id existente sem nenhuma chamada de rede.
+     */
+    public Mono<String> uploadFileToEndpoint(SourceTree sources, Path filePath, String jwt) {
+        return Mono.defer(() -> {
+            ByteBuffer content;
+            try {
+                content = sources.content(filePath);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            String key = ContentHash.gitBlobSha1(content) + "/" + filePath.getFileName();
+            String uploadId = uploadIds.get(key);
+            if (uploadId != null) {
+                hits.increment();
+                log.debug("Reutilizando upload de {} ({})", filePath.getFileName(), key);
+                return Mono.just(uploadId);
+            }
+            misses.increment();
+            // Falhas não ficam em cache: a próxima chamada tenta o upload de novo
+            return inFlight.join(key, () -> upload(filePath.getFileName().toString(), content, jwt)
+                    .doOnNext(id -> uploadIds.put(key, id)));
+        });
+    }
+
+    private Mono<String> upload(String fileName, ByteBuffer content, String jwt) {
         String requestJson = String.format(
-                "{\"file_name\": \"%s\", \"target_type\": \"CONTEXT\", \"expiration\": 60}",
-                filePath.getFileName().toString());
+                "{\"file_name\": \"%s\", \"target_type\": \"CONTEXT\", \"expiration\": %d}",
+                fileName, expirationMinutes);
 
         return webClient.post()
                 .uri(fileUploadEndpoint)
@@ -40,37 +124,35 @@ public class S3UploadClient {
                 .retrieve()
                 .bodyToMono(String.class)
                 .flatMap(formResponse -> {
-                    return Mono.fromCallable(() -> {
-                        JSONObject uploadData = new JSONObject(formResponse);
-                        String url = uploadData.getString("url");
-                        JSONObject form = uploadData.getJSONObject("form");
-
-                        try (CloseableHttpClient client = HttpClients.createDefault()) {
-                            HttpPost post = new HttpPost(url);
-
-                            MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-                            builder.addTextBody("key", form.getString("key"));
-                            builder.addTextBody("x-amz-algorithm", form.getString("x-amz-algorithm"));
-                            builder.addTextBody("x-amz-credential", form.getString("x-amz-credential"));
-                            builder.addTextBody("x-amz-date", form.getString("x-amz-date"));
-                            builder.addTextBody("x-amz-security-token", form.getString("x-amz-security-token"));
-                            builder.addTextBody("policy", form.getString("policy"));
-                            builder.addTextBody("x-amz-signature", form.getString("x-amz-signature"));
-                            builder.addBinaryBody("file", filePath.toFile());
-
-                            HttpEntity multipart = builder.build();
-                            post.setEntity(multipart);
-
-                            try (CloseableHttpResponse response = client.execute(post)) {
-                                int statusCode = response.getStatusLine().getStatusCode();
-                                if (statusCode != 204 && statusCode != 201 && statusCode != 200) {
-                                    throw new RuntimeException("Upload failed: " + statusCode);
-                                }
-                            }
-                        }
-
-                        return uploadData.getString("id");
-                    });
+                    JSONObject uploadData = new JSONObject(formResponse);
+                    return uploadToS3(uploadData.getString("url"), uploadData.getJSONObject("form"), fileName,
+                            content)
+                            .thenReturn(uploadData.getString("id"));
                 });
     }
+
+    /**
+     * POST multipart no formulário pré-assinado. O arquivo é escrito direto do buffer do snapshot (mapeado do
+     * disco quando grande), sem cópia intermediária.
+     */
+    private Mono<Void> uploadToS3(String url, JSONObject form, String fileName, ByteBuffer content) {
+        MultipartBodyBuilder multipart = new MultipartBodyBuilder();
+        for (String field : FORM_FIELDS) {
+            multipart.part(field, form.getString(field));
+        }
+        Flux<DataBuffer> file = Flux.defer(
+                () -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content.duplicate())));
+        multipart.asyncPart("file", file, DataBuffer.class)
+                .filename(fileName)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+
+        return uploadClient.post()
+                .uri(url)
+                .body(BodyInserters.fromMultipartData(multipart.build()))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> Mono.error(
+                        new RuntimeException("Upload failed: " + response.statusCode().value())))
+                .toBodilessEntity()
+                .then();
+    }
 }
@@ -1,29 +1,53 @@
 package com.example.demo.client;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.example.demo.config.HttpClientFactory;
 import com.example.demo.dto.TokenResponse;
+import com.example.demo.util.JsonUtils;
 
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Component
 public class StackspotClient {
 
     private static final Logger log = LoggerFactory.getLogger(StackspotClient.class);
 
+    // Margem antes da expiração em que o token deixa de ser entregue aos chamadores
+    private static final Duration EXPIRATION_SKEW = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofMinutes(20);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> CHAT_EVENT =
+            new ParameterizedTypeReference<>() {
+            };
+    // Marcador de fim enviado por alguns agentes no lugar de um trecho da resposta
+    private static final String STREAM_DONE = "[DONE]";
+
     private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
 
     // OAuth2 Configuration
     @Value("${oauth2.client.id}")
@@ -35,31 +59,101 @@ public class StackspotClient {
     @Value("${oauth2.token.url}")
     private String tokenUrl;
 
-    // Token cache
-    private String cachedToken;
-    private LocalDateTime tokenExpiration;
+    @Value("${oauth2.token.refresh-ahead}")
+    private Duration refreshAhead;
+
+    // Token cache: o token atual e a renovação em andamento, compartilhada por todos os chamadores
+    private final AtomicReference<CachedToken> cachedToken = new AtomicReference<>();
+    private final AtomicReference<Mono<CachedToken>> inFlightRefresh = new AtomicReference<>();
+    private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
 
-    public StackspotClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    private final Counter coalescedRequests;
+
+    private record CachedToken(String value, Instant expiresAt) {
+
+        boolean usableAt(Instant now) {
+            return now.isBefore(expiresAt.minus(EXPIRATION_SKEW));
+        }
+
+        boolean validAt(Instant now) {
+            return now.isBefore(expiresAt);
+        }
+    }
+
+    public StackspotClient(HttpClientFactory httpClientFactory, MeterRegistry meterRegistry) {
+        this.webClient = httpClientFactory.webClient("stackspot").build();
+        this.meterRegistry = meterRegistry;
+        this.coalescedRequests = Counter.builder("oauth2.token.coalesced")
+                .description("Chamadas que aguardaram uma renovação de token já em andamento")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Disposable refresh = scheduledRefresh.getAndSet(null);
+        if (refresh != null) {
+            refresh.dispose();
+        }
     }
 
     // OAuth2 Token Management
 
     public Mono<String> getAccessToken() {
-        if (isTokenValid()) {
-            log.debug("Usando token em cache");
-            return Mono.just(cachedToken);
+        return Mono.defer(() -> {
+            CachedToken current = cachedToken.get();
+            if (current != null && current.usableAt(Instant.now())) {
+                log.debug("Usando token em cache");
+                return Mono.just(current.value());
+            }
+            return refreshToken().map(CachedToken::value);
+        });
+    }
+
+    /**
+     * Devolve a renovação em andamento ou inicia uma nova. Só uma requisição ao IdM fica em voo por vez; os
+     * demais chamadores recebem o mesmo resultado.
+     */
+    private Mono<CachedToken> refreshToken() {
+        while (true) {
+            Mono<CachedToken> inFlight = inFlightRefresh.get();
+            if (inFlight != null) {
+                coalescedRequests.increment();
+                return inFlight;
+            }
+            Mono<CachedToken> refresh = Mono.defer(this::requestAndCacheToken)
+                    // Liberado antes de entregar o resultado, para que a próxima renovação não reutilize esta
+                    .doOnTerminate(() -> inFlightRefresh.set(null))
+                    .cache();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                return refresh;
+            }
         }
+    }
 
+    private Mono<CachedToken> requestAndCacheToken() {
         log.info("Solicitando novo token OAuth2");
+        CachedToken previous = cachedToken.get();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
         return requestNewToken()
                 .map(this::cacheToken)
-                .map(TokenResponse::accessToken);
+                .doOnSuccess(token -> sample.stop(refreshTimer("success")))
+                .doOnError(error -> sample.stop(refreshTimer("failure")))
+                .onErrorResume(error -> {
+                    // Falha na renovação antecipada: o token anterior continua valendo até expirar
+                    if (previous != null && previous.validAt(Instant.now())) {
+                        log.warn("Renovação do token falhou, mantendo o token atual até {}", previous.expiresAt());
+                        return Mono.just(previous);
+                    }
+                    return Mono.error(error);
+                });
     }
 
-    private boolean isTokenValid() {
-        return cachedToken != null && tokenExpiration != null &&
-                LocalDateTime.now().isBefore(tokenExpiration.minus(5, ChronoUnit.MINUTES));
+    private Timer refreshTimer(String result) {
+        return Timer.builder("oauth2.token.refresh")
+                .description("Renovações do token OAuth2 junto ao IdM")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     private Mono<TokenResponse> requestNewToken() {
@@ -78,38 +172,83 @@ public class StackspotClient {
                 .onErrorResume(error -> Mono.error(new RuntimeException("Falha ao obter token OAuth2", error)));
     }
 
-    private TokenResponse cacheToken(TokenResponse tokenResponse) {
-        this.cachedToken = tokenResponse.accessToken();
+    private CachedToken cacheToken(TokenResponse tokenResponse) {
+        Duration lifetime = tokenResponse.expiresIn() != null
+                ? Duration.ofSeconds(tokenResponse.expiresIn())
+                : DEFAULT_TOKEN_LIFETIME;
+        CachedToken token = new CachedToken(tokenResponse.accessToken(), Instant.now().plus(lifetime));
+        cachedToken.set(token);
 
-        if (tokenResponse.expiresIn() != null) {
-            this.tokenExpiration = LocalDateTime.now().plus(tokenResponse.expiresIn(), ChronoUnit.SECONDS);
-        } else {
-            this.tokenExpiration = LocalDateTime.now().plus(20, ChronoUnit.MINUTES);
-        }
+        log.debug("Token armazenado em cache até: {}", token.expiresAt());
+        scheduleRefresh(lifetime);
+        return token;
+    }
 
-        log.debug("Token armazenado em cache até: {}", tokenExpiration);
-        return tokenResponse;
+    /**
+     * Agenda a renovação em segundo plano um pouco antes da janela de expiração, para que nenhuma requisição
+     * precise esperar pelo IdM.
+     */
+    private void scheduleRefresh(Duration lifetime) {
+        long delay = lifetime.minus(EXPIRATION_SKEW).minus(refreshAhead).toMillis();
+        if (delay <= 0) {
+            return;
+        }
+        Disposable next = Schedulers.parallel().schedule(() -> refreshToken().subscribe(
+                token -> log.debug("Token renovado em segundo plano"),
+                error -> log.warn("Falha na renovação do token em segundo plano: {}", error.getMessage())),
+                delay, TimeUnit.MILLISECONDS);
+        Disposable previous = scheduledRefresh.getAndSet(next);
+        if (previous != null) {
+            previous.dispose();
+        }
     }
 
     // Chat/AI Integration
     public Mono<String> callChatEndpoint(List<String> uploadIds, String userPrompt, String jwt, String chatEndpoint) {
         log.info("Chamando endpoint de chat com {} arquivos", uploadIds.size());
 
-        org.json.JSONObject body = new org.json.JSONObject();
-        body.put("streaming", false);
-        body.put("user_prompt", userPrompt);
-        body.put("stackspot_knowledge", false);
-        body.put("return_ks_in_response", true);
-        body.put("upload_ids", new org.json.JSONArray(uploadIds));
-
         return webClient.post()
                 .uri(chatEndpoint)
                 .contentType(MediaType.APPLICATION_JSON)
                 .header("Authorization", "Bearer " + jwt)
-                .bodyValue(body.toString())
+                .bodyValue(chatBody(false, uploadIds, userPrompt))
                 .retrieve()
                 .bodyToMono(String.class)
                 .doOnSuccess(response -> log.info("Resposta do chat recebida com sucesso"))
                 .doOnError(error -> log.error("Erro na chamada do chat: {}", error.getMessage()));
     }
+
+    /**
+     * Mesma chamada com streaming ligado: o agente responde em Server-Sent Events e cada trecho da resposta é
+     * repassado assim que chega.
+     */
+    public Flux<String> streamChatEndpoint(List<String> uploadIds, String userPrompt, String jwt,
+            String chatEndpoint) {
+        log.info("Chamando endpoint de chat em streaming com {} arquivos", uploadIds.size());
+
+        return webClient.post()
+                .uri(chatEndpoint)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Authorization", "Bearer " + jwt)
+                .bodyValue(chatBody(true, uploadIds, userPrompt))
+                .retrieve()
+                .bodyToFlux(CHAT_EVENT)
+                .mapNotNull(ServerSentEvent::data)
+                .filter(data -> !STREAM_DONE.equals(data))
+                .map(JsonUtils::extractChunk)
+                .filter(chunk -> !chunk.isEmpty())
+                .doOnComplete(() -> log.info("Streaming do chat concluído"))
+                .doOnError(error -> log.error("Erro no streaming do chat: {}", error.getMessage()));
+    }
+
+    private static String chatBody(boolean streaming, List<String> uploadIds, String userPrompt) {
+        org.json.JSONObject body = new org.json.JSONObject();
+        body.put("streaming", streaming);
+        body.put("user_prompt", userPrompt);
+        body.put("stackspot_knowledge", false);
+        body.put("return_ks_in_response", true);
+        body.put("upload_ids", new org.json.JSONArray(uploadIds));
+        return body.toString();
+    }
 }
@@ -0,0 +1,136 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Camada HTTP compartilhada pelos clientes. Cada destino usa um {@link ConnectionProvider} nomeado (o pool é
+ * separado por endereço remoto dentro dele) e as opções vêm de {@code http.pool.<nome>.*}, com
+ * {@code http.pool.*} como padrão. Os pools publicam gauges de conexões ativas, ociosas e aquisições pendentes.
+ */
+public class HttpClientFactory {
+    private static final Logger log = LoggerFactory.getLogger(HttpClientFactory.class);
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final WebClient.Builder webClientBuilder;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter.Id>> poolMeters = new ConcurrentHashMap<>();
+
+    public HttpClientFactory(Environment environment, MeterRegistry meterRegistry, WebClient.Builder webClientBuilder) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.webClientBuilder = webClientBuilder;
+    }
+
+    public WebClient.Builder webClient(String pool) {
+        return webClient(pool, UnaryOperator.identity());
+    }
+
+    /**
+     * Builder novo (o chamador pode alterá-lo livremente) ligado ao pool informado. {@code customizer} ajusta
+     * o {@link HttpClient} do destino, por exemplo timeouts e redirecionamentos.
+     */
+    public WebClient.Builder webClient(String pool, UnaryOperator<HttpClient> customizer) {
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(customizer.apply(httpClient(pool))));
+    }
+
+    public HttpClient httpClient(String pool) {
+        HttpClient client = HttpClient.create(connectionProvider(pool))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        (int) setting(pool, "connect-timeout", Duration.class).toMillis())
+                .keepAlive(setting(pool, "keep-alive", Boolean.class))
+                .compress(setting(pool, "compression", Boolean.class));
+        if (setting(pool, "http2", Boolean.class)) {
+            // HTTP/2 é negociado via ALPN apenas em destinos HTTPS; os demais continuam em HTTP/1.1
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return client;
+    }
+
+    private ConnectionProvider connectionProvider(String pool) {
+        return providers.computeIfAbsent(pool, name -> {
+            ConnectionProvider provider = ConnectionProvider.builder(name)
+                    .maxConnections(setting(name, "max-connections", Integer.class))
+                    .pendingAcquireMaxCount(setting(name, "pending-acquire-max", Integer.class))
+                    .pendingAcquireTimeout(setting(name, "pending-acquire-timeout", Duration.class))
+                    .maxIdleTime(setting(name, "max-idle-time", Duration.class))
+                    .maxLifeTime(setting(name, "max-life-time", Duration.class))
+                    .evictInBackground(setting(name, "evict-interval", Duration.class))
+                    .metrics(true, () -> new PoolMeterRegistrar())
+                    .build();
+            log.info("Pool HTTP {} criado (máximo de {} conexões por destino)", name,
+                    setting(name, "max-connections", Integer.class));
+            return provider;
+        });
+    }
+
+    private <T> T setting(String pool, String key, Class<T> type) {
+        T value = environment.getProperty("http.pool." + pool + "." + key, type);
+        return value != null ? value : environment.getRequiredProperty("http.pool." + key, type);
+    }
+
+    public void dispose() {
+        providers.values().forEach(ConnectionProvider::dispose);
+        providers.clear();
+    }
+
+    private final class PoolMeterRegistrar implements ConnectionProvider.MeterRegistrar {
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                ConnectionPoolMetrics metrics) {
+            Tags tags = Tags.of("pool", poolName, "remote", remoteAddress.toString());
+            List<Meter.Id> ids = new ArrayList<>();
+            ids.add(gauge("http.client.pool.connections.active", "Conexões em uso", tags, metrics,
+                    ConnectionPoolMetrics::acquiredSize));
+            ids.add(gauge("http.client.pool.connections.idle", "Conexões ociosas disponíveis", tags, metrics,
+                    ConnectionPoolMetrics::idleSize));
+            ids.add(gauge("http.client.pool.pending", "Aquisições aguardando uma conexão livre", tags, metrics,
+                    ConnectionPoolMetrics::pendingAcquireSize));
+            ids.add(gauge("http.client.pool.connections.max", "Limite de conexões do pool", tags, metrics,
+                    ConnectionPoolMetrics::maxAllocatedSize));
+            poolMeters.put(id, ids);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            List<Meter.Id> ids = poolMeters.remove(id);
+            if (ids != null) {
+                ids.forEach(meterRegistry::remove);
+            }
+        }
+
+        private Meter.Id gauge(String name, String description, Tags tags, ConnectionPoolMetrics metrics,
+                ToDoubleFunction<ConnectionPoolMetrics> value) {
+            return Gauge.builder(name, metrics, value)
+                    .description(description)
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(meterRegistry)
+                    .getId();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.example.demo.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 public class WebClientConfig {
 
-    @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    // O WebClient.Builder vem da auto-configuração do Spring Boot (um protótipo por injeção, com codecs e
+    // observabilidade); cada cliente o recebe já ligado ao seu pool de conexões
+    @Bean(destroyMethod = "dispose")
+    public HttpClientFactory httpClientFactory(Environment environment, MeterRegistry meterRegistry,
+            WebClient.Builder webClientBuilder) {
+        return new HttpClientFactory(environment, meterRegistry, webClientBuilder);
     }
 }
@@ -14,8 +14,6 @@ public final class ApplicationConstants {
 
     public static final String DOC_DEFAULT_GITHUB_REPO_URL = "https://github.com/thiagomess/resource-service/archive/refs/heads/main.zip";
 
-    public static final String DOC_DEFAULT_DOWNLOAD_PATH = "repo.zip";
-
     public static final String DOC_DEFAULT_TOKEN_URL = "https://idm.stackspot.com/stackspot-freemium/oidc/oauth/token";
 
     public static final String DOC_FILE_UPLOAD_ENDPOINT = "https://data-integration-api.stackspot.com/v2/file-upload/form";
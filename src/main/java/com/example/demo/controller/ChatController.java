@@ -2,54 +2,124 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.ApiRequest;
 import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.BatchResult;
+import com.example.demo.dto.ScopePath;
+import com.example.demo.service.ChatResponder;
 import com.example.demo.service.GithubAnalysisService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
 public class ChatController {
 
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
-    private static final Pattern MESSAGE_PATTERN = Pattern.compile("scope:\\s*([^,]+),\\s*path:\\s*(.+)");
+    private static final String EMPTY_MESSAGE = "A mensagem não pode ser vazia. Para análise de repositório, use o "
+            + "formato: {\"message\": \"scope: ping, path: ping/scope\", \"type\": \"controller ou unit_test\"}";
 
     private final GithubAnalysisService analysisService;
 
-    public ChatController(GithubAnalysisService analysisService) {
+    private final int maxBatchItems;
+
+    public ChatController(GithubAnalysisService analysisService,
+            @Value("${analysis.batch.max-items}") int maxBatchItems) {
         this.analysisService = analysisService;
+        this.maxBatchItems = maxBatchItems;
     }
 
+    /**
+     * {@code repoUrl} e {@code ref} opcionais escolhem o repositório; um host fora de {@code github.allowed-hosts}
+     * responde 400. {@code Cache-Control: no-cache} ignora o cache de resultados e pede uma resposta nova ao agente.
+     */
     @PostMapping("/chat")
-    public Mono<ResponseEntity<ApiResponse>> message(@RequestBody ApiRequest request) {
+    public Mono<ResponseEntity<ApiResponse>> message(@RequestBody ApiRequest request,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
         log.info("Recebida requisição de análise: {}, type: {}", request.message(), request.type());
 
-        String msg = request.message();
-        String type = request.type() != null ? request.type() : "controller"; // Default para controller
-
-        if (msg != null && !msg.trim().isEmpty()) {
-            Matcher matcher = MESSAGE_PATTERN.matcher(msg);
-            if (matcher.matches()) {
-                String scope = matcher.group(1).trim();
-                String path = matcher.group(2).trim();
+        if (!request.isBlank()) {
+            Optional<ScopePath> scopePath = request.scopePath();
+            if (scopePath.isPresent()) {
+                String scope = scopePath.get().scope();
+                String path = scopePath.get().path();
+                String type = request.typeOrDefault();
+                String repoUrl;
+                try {
+                    repoUrl = analysisService.resolveRepository(request.repoUrl(), request.ref());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Repositório recusado: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(new ApiResponse(e.getMessage())));
+                }
 
                 log.info("Analisando com padrão scope/path - Scope: '{}', Path: '{}', Type: '{}'", scope, path, type);
-                return analysisService.analyzeRepository(scope, path, type);
+                return analysisService.analyzeRepository(repoUrl, scope, path, type, bypassCache(cacheControl));
             } else {
-                log.info("Mensagem não segue o padrão scope/path, enviando diretamente para processamento: {}", msg);
-                return analysisService.processDirectMessage(msg);
+                log.info("Mensagem não segue o padrão scope/path, enviando diretamente para processamento: {}",
+                        request.message());
+                return analysisService.processDirectMessage(request.message());
             }
         }
 
         log.warn("Mensagem vazia ou inválida");
-        String example = "{\"message\": \"scope: ping, path: ping/scope\", \"type\": \"controller ou unit_test\"}";
-        return Mono.just(ResponseEntity.badRequest()
-                .body(new ApiResponse(
-                        "A mensagem não pode ser vazia. Para análise de repositório, use o formato: " + example)));
+        return Mono.just(ResponseEntity.badRequest().body(new ApiResponse(EMPTY_MESSAGE)));
+    }
+
+    /**
+     * Vários pedidos de uma vez sobre um único download e índice por repositório e um único token. Cada item é
+     * respondido como uma linha NDJSON assim que fica pronto, fora da ordem de envio ({@code index} identifica o
+     * item).
+     */
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchResult> batch(@RequestBody List<ApiRequest> requests,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        log.info("Recebida requisição de análise em lote com {} itens", requests.size());
+        if (requests.size() > maxBatchItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "O lote aceita no máximo " + maxBatchItems + " itens");
+        }
+        return analysisService.analyzeBatch(requests, bypassCache(cacheControl));
+    }
+
+    private static boolean bypassCache(String cacheControl) {
+        return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    /**
+     * Mesma entrada de {@code /chat}, respondida em Server-Sent Events: eventos de progresso da análise
+     * seguidos da resposta do agente em trechos, à medida que é gerada.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> stream(@RequestBody ApiRequest request) {
+        log.info("Recebida requisição de análise em streaming: {}, type: {}", request.message(), request.type());
+
+        if (request.isBlank()) {
+            log.warn("Mensagem vazia ou inválida");
+            return Flux.just(ChatResponder.event("error", EMPTY_MESSAGE));
+        }
+        Optional<ScopePath> scopePath = request.scopePath();
+        if (scopePath.isEmpty()) {
+            return analysisService.streamDirectMessage(request.message());
+        }
+        String repoUrl;
+        try {
+            repoUrl = analysisService.resolveRepository(request.repoUrl(), request.ref());
+        } catch (IllegalArgumentException e) {
+            log.warn("Repositório recusado: {}", e.getMessage());
+            return Flux.just(ChatResponder.event("error", e.getMessage()));
+        }
+        return analysisService.streamRepositoryAnalysis(repoUrl, scopePath.get().scope(), scopePath.get().path(),
+                request.typeOrDefault());
     }
 }
@@ -1,5 +1,39 @@
 package com.example.demo.dto;
 
-public record ApiRequest(String message, String type) {
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * {@code repoUrl} e {@code ref} (branch, tag ou commit) escolhem o repositório analisado; ausentes, vale o
+ * {@code github.repo.url} configurado.
+ */
+public record ApiRequest(String message, String type, String repoUrl, String ref) {
+
+    private static final Pattern MESSAGE_PATTERN = Pattern.compile("scope:\\s*([^,]+),\\s*path:\\s*(.+)");
+
+    public ApiRequest(String message, String type) {
+        this(message, type, null, null);
+    }
+
+    public boolean isBlank() {
+        return message == null || message.trim().isEmpty();
+    }
+
+    public String typeOrDefault() {
+        return type != null ? type : "controller"; // Default para controller
+    }
+
+    /**
+     * Scope e path quando a mensagem segue o formato {@code scope: X, path: Y}; vazio para mensagens diretas.
+     */
+    public Optional<ScopePath> scopePath() {
+        if (isBlank()) {
+            return Optional.empty();
+        }
+        Matcher matcher = MESSAGE_PATTERN.matcher(message);
+        return matcher.matches()
+                ? Optional.of(new ScopePath(matcher.group(1).trim(), matcher.group(2).trim()))
+                : Optional.empty();
+    }
 }
@@ -0,0 +1,7 @@
+package com.example.demo.dto;
+
+/**
+ * Resposta de um item de {@code /api/chat/batch}; {@code index} é a posição do item na requisição.
+ */
+public record BatchResult(int index, String message, int status, String response) {
+}
@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resultado da análise: uma resposta pronta ({@code reply}) ou a chamada ao agente de chat com o prompt e os
+ * arquivos a enviar. {@code uploads} recebe o token e devolve os upload_ids; {@code failureMessage} prefixa a
+ * mensagem de erro devolvida ao cliente.
+ */
+public record ChatPlan(
+    String summary,
+    String reply,
+    String chatEndpoint,
+    String prompt,
+    Function<String, Mono<List<String>>> uploads,
+    String failureMessage
+) {
+
+    public static ChatPlan reply(String summary, String reply) {
+        return new ChatPlan(summary, reply, null, null, token -> Mono.just(List.of()), null);
+    }
+
+    public static ChatPlan chat(String summary, String chatEndpoint, String prompt, String failureMessage) {
+        return chat(summary, chatEndpoint, prompt, token -> Mono.just(List.of()), failureMessage);
+    }
+
+    public static ChatPlan chat(String summary, String chatEndpoint, String prompt,
+            Function<String, Mono<List<String>>> uploads, String failureMessage) {
+        return new ChatPlan(summary, null, chatEndpoint, prompt, uploads, failureMessage);
+    }
+
+    public boolean needsChat() {
+        return reply == null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo.dto;
 
-import java.util.List;
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.snapshot.SourceTree;
 
-public record RepoContext(String zipPath, String extractDir, List<ControllerMatch> matches) {
+public record RepoContext(SourceTree sources, String controllersDir, RepositoryIndex index) {
 }
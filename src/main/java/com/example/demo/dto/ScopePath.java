@@ -0,0 +1,4 @@
+package com.example.demo.dto;
+
+public record ScopePath(String scope, String path) {
+}
@@ -1,16 +1,13 @@
 package com.example.demo.factory;
 
-import com.example.demo.dto.ApiResponse;
-import com.example.demo.dto.ControllerMatch;
+import com.example.demo.dto.ChatPlan;
+import com.example.demo.dto.RepoContext;
 import com.example.demo.enums.TypeAction;
 import com.example.demo.service.ControllerProcessor;
 import com.example.demo.service.UnitTestProcessor;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
-
 @Component
 public class ProcessorFactory {
 
@@ -38,21 +35,22 @@ public class ProcessorFactory {
     }
 
     public interface ActionProcessor {
-        Mono<ResponseEntity<ApiResponse>> process(List<ControllerMatch> matches, String scope, String path);
+        Mono<ChatPlan> process(RepoContext context, String scope, String path);
     }
 
     private class ControllerActionProcessor implements ActionProcessor {
         @Override
-        public Mono<ResponseEntity<ApiResponse>> process(List<ControllerMatch> matches, String scope, String path) {
-            return controllerProcessor.processControllerLogic(matches, scope, path);
+        public Mono<ChatPlan> process(RepoContext context, String scope, String path) {
+            return controllerProcessor.processControllerLogic(context.sources(), context.index(), scope, path);
         }
     }
 
     private class UnitTestActionProcessor implements ActionProcessor {
         @Override
-        public Mono<ResponseEntity<ApiResponse>> process(List<ControllerMatch> matches, String scope, String path) {
+        public Mono<ChatPlan> process(RepoContext context, String scope, String path) {
             return unitTestProcessor.processUnitTest(
-                    matches.stream()
+                    context.sources(),
+                    context.index().matches(scope, path).stream()
                             .filter(m -> m.scopeFound())
                             .findFirst()
                             .orElse(null),
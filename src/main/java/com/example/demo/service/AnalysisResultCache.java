@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.util.ExpiringLruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Respostas do agente para análises idênticas. A chave inclui o ETag do snapshot, então um push no
+ * repositório invalida naturalmente os resultados anteriores. Apenas respostas 2xx são guardadas.
+ */
+@Component
+public class AnalysisResultCache {
+    private static final Logger log = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /**
+     * Identifica uma análise: repositório e snapshot, pedido do usuário e agente que responde.
+     */
+    public record Key(String repoUrl, String etag, String scope, String path, String type, String chatEndpoint) {
+
+        public Key {
+            type = type != null ? type.toLowerCase(Locale.ROOT) : null;
+        }
+    }
+
+    private final ExpiringLruCache<Key, ApiResponse> results;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    public AnalysisResultCache(MeterRegistry meterRegistry,
+            @Value("${analysis.result-cache.max-entries}") int maxEntries,
+            @Value("${analysis.result-cache.ttl}") Duration ttl) {
+        this.results = new ExpiringLruCache<>(maxEntries, ttl);
+        Counter hits = requestCounter(meterRegistry, "hit");
+        Counter misses = requestCounter(meterRegistry, "miss");
+        Counter bypasses = requestCounter(meterRegistry, "bypass");
+        this.hits = hits;
+        this.misses = misses;
+        this.bypasses = bypasses;
+        Gauge.builder("analysis.result.cache.hit.ratio", () -> hitRatio(hits, misses, bypasses))
+                .description("Fração das consultas ao cache de resultados atendidas sem chamar o agente")
+                .register(meterRegistry);
+        Gauge.builder("analysis.result.cache.size", results, ExpiringLruCache::size)
+                .description("Resultados de análise em cache")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("analysis.result.cache.requests")
+                .description("Consultas ao cache de resultados de análise")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static double hitRatio(Counter hits, Counter misses, Counter bypasses) {
+        double total = hits.count() + misses.count() + bypasses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Resposta em cache para a chave ou, se ausente (ou {@code bypass}), a calculada por {@code compute},
+     * que passa a ser a resposta em cache. Uma chave sem ETag nunca é guardada.
+     */
+    public Mono<ResponseEntity<ApiResponse>> get(Key key, boolean bypass,
+            Supplier<Mono<ResponseEntity<ApiResponse>>> compute) {
+        if (key.etag() == null) {
+            return compute.get();
+        }
+        if (bypass) {
+            bypasses.increment();
+            log.debug("Cache de resultados ignorado a pedido do cliente: {}", key);
+            return computeAndStore(key, compute, "BYPASS");
+        }
+        ApiResponse cached = results.get(key);
+        if (cached != null) {
+            hits.increment();
+            log.info("Resultado em cache para scope '{}', path '{}' (ETag {})", key.scope(), key.path(), key.etag());
+            return Mono.just(ResponseEntity.ok().header(CACHE_STATUS_HEADER, "HIT").body(cached));
+        }
+        misses.increment();
+        return computeAndStore(key, compute, "MISS");
+    }
+
+    private Mono<ResponseEntity<ApiResponse>> computeAndStore(Key key,
+            Supplier<Mono<ResponseEntity<ApiResponse>>> compute, String status) {
+        return compute.get().map(response -> {
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                results.put(key, response.getBody());
+            }
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .header(CACHE_STATUS_HEADER, status)
+                    .body(response.getBody());
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import com.example.demo.client.StackspotClient;
+import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.ChatPlan;
+import com.example.demo.util.JsonUtils;
+import com.example.demo.util.StageTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Executa o {@link ChatPlan} produzido pela análise: devolve a resposta pronta ou faz os uploads e chama o
+ * agente, numa resposta única ou em streaming.
+ */
+@Component
+public class ChatResponder {
+    private static final Logger log = LoggerFactory.getLogger(ChatResponder.class);
+
+    private final StackspotClient stackspotClient;
+    private final StageTimer stageTimer;
+
+    public ChatResponder(StackspotClient stackspotClient, MeterRegistry meterRegistry) {
+        this.stackspotClient = stackspotClient;
+        this.stageTimer = new StageTimer(meterRegistry);
+    }
+
+    public Mono<String> accessToken() {
+        return stackspotClient.getAccessToken();
+    }
+
+    public Mono<ResponseEntity<ApiResponse>> respond(ChatPlan plan) {
+        return respond(plan, StageTimer.DIRECT, stackspotClient.getAccessToken());
+    }
+
+    /**
+     * Variante com o token já obtido (ou em obtenção) pelo chamador, compartilhado entre vários planos.
+     * {@code type} identifica a análise nas métricas das etapas {@code upload} e {@code chat}.
+     */
+    public Mono<ResponseEntity<ApiResponse>> respond(ChatPlan plan, String type, Mono<String> accessToken) {
+        if (!plan.needsChat()) {
+            return Mono.just(ResponseEntity.ok(new ApiResponse(plan.reply())));
+        }
+        return accessToken
+                .flatMap(token -> stageTimer.time("upload", type, plan.uploads().apply(token))
+                        .flatMap(uploadIds -> stageTimer.time("chat", type, stackspotClient.callChatEndpoint(
+                                uploadIds, plan.prompt(), token, plan.chatEndpoint()))))
+                .map(response -> ResponseEntity.ok(new ApiResponse(JsonUtils.extractMessage(response))))
+                .onErrorResume(error -> {
+                    log.error("Erro ao responder ({}): {}", plan.summary(), error.getMessage());
+                    return Mono.just(ResponseEntity.internalServerError()
+                            .body(new ApiResponse(plan.failureMessage() + error.getMessage())));
+                });
+    }
+
+    /**
+     * Eventos {@code matched} e {@code uploaded}, seguidos dos trechos da resposta ({@code message}) à medida
+     * que o agente os produz.
+     */
+    public Flux<ServerSentEvent<String>> stream(ChatPlan plan, String type) {
+        Flux<ServerSentEvent<String>> matched = Flux.just(event("matched", plan.summary()));
+        if (!plan.needsChat()) {
+            return matched.concatWith(Mono.just(event("message", plan.reply())));
+        }
+        return matched.concatWith(stackspotClient.getAccessToken()
+                .flatMapMany(token -> stageTimer.time("upload", type, plan.uploads().apply(token))
+                        .flatMapMany(uploadIds -> Flux.just(event("uploaded", uploadIds.size() + " arquivo(s)"))
+                                .concatWith(stageTimer.time("chat", type, stackspotClient
+                                        .streamChatEndpoint(uploadIds, plan.prompt(), token, plan.chatEndpoint()))
+                                        .map(chunk -> event("message", chunk))))));
+    }
+
+    public static ServerSentEvent<String> event(String name, String data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+}
@@ -1,18 +1,20 @@
 package com.example.demo.service;
 
+import com.example.demo.analysis.Endpoint;
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.analysis.RouteTrie;
 import com.example.demo.client.S3UploadClient;
-import com.example.demo.client.StackspotClient;
-import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.ChatPlan;
 import com.example.demo.dto.ControllerMatch;
-import com.example.demo.util.JsonUtils;
+import com.example.demo.snapshot.SourceTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -22,16 +24,16 @@ public class ControllerProcessor {
     @Value("${chat.endpoint.controller}")
     private String chatEndpointController;
 
-    private final StackspotClient stackspotClient;
     private final S3UploadClient s3UploadClient;
 
-    public ControllerProcessor(StackspotClient stackspotClient, S3UploadClient s3UploadClient) {
-        this.stackspotClient = stackspotClient;
+    public ControllerProcessor(S3UploadClient s3UploadClient) {
         this.s3UploadClient = s3UploadClient;
     }
 
-    public Mono<ResponseEntity<ApiResponse>> processControllerLogic(
-            java.util.List<ControllerMatch> matches, String scope, String path) {
+    public Mono<ChatPlan> processControllerLogic(
+            SourceTree sources, RepositoryIndex index, String scope, String path) {
+        List<ControllerMatch> matches = index.matches(scope, path);
+        log.info("Encontrados {} matches no índice do repositório", matches.size());
 
         Optional<ControllerMatch> bothFound = matches.stream()
                 .filter(m -> m.scopeFound() && m.pathFound())
@@ -40,7 +42,7 @@ public class ControllerProcessor {
         if (bothFound.isPresent()) {
             log.info("Endpoint já existe na classe: {}", bothFound.get().className());
             String response = "Já existe o endpoint com o escopo informado.\nClasse: " + bothFound.get().className();
-            return Mono.just(ResponseEntity.ok(new ApiResponse(response)));
+            return Mono.just(ChatPlan.reply("Endpoint já existe em " + bothFound.get().className(), response));
         }
 
         Optional<ControllerMatch> scopeOnly = matches.stream()
@@ -49,57 +51,43 @@ public class ControllerProcessor {
 
         if (scopeOnly.isPresent()) {
             log.info("Encontrado scope existente, processando com IA");
-            return processExistingScope(scopeOnly.get(), path);
+            return Mono.just(processExistingScope(sources, scopeOnly.get(), path));
         }
 
         log.info("Nenhum match encontrado, criando novo endpoint");
-        return createNewEndpoint(scope, path);
+        logOverlaps(index, path);
+        return Mono.just(createNewEndpoint(scope, path));
     }
 
-    private Mono<ResponseEntity<ApiResponse>> processExistingScope(ControllerMatch match, String path) {
-        return stackspotClient.getAccessToken()
-                .flatMap(token -> s3UploadClient.uploadFileToEndpoint(match.filePath(), token)
-                        .flatMap(uploadId -> stackspotClient.callChatEndpoint(
-                                Collections.singletonList(uploadId),
-                                "scope: " + match.scope() + ", path: " + path,
-                                token, chatEndpointController)
-                                .map(response -> ResponseEntity
-                                        .ok(new ApiResponse(JsonUtils.extractMessage(response)))))
-                        .onErrorResume(error -> {
-                            log.error("Erro no processamento com scope existente: {}", error.getMessage());
-                            return Mono.just(ResponseEntity.internalServerError()
-                                    .body(new ApiResponse("Erro no processamento: " + error.getMessage())));
-                        }));
+    private void logOverlaps(RepositoryIndex index, String path) {
+        for (RouteTrie.Overlap overlap : index.routes().overlapping(null, path)) {
+            Endpoint existing = overlap.route().endpoint();
+            log.warn("Novo path {} se sobrepõe a {} {} ({}.{}){}", path, existing.httpMethod(),
+                    overlap.route().pattern(), existing.className(), existing.methodName(),
+                    overlap.shadows() ? ", que tem prioridade no roteamento" : "");
+        }
     }
 
-    public Mono<ResponseEntity<ApiResponse>> createNewEndpoint(String scope, String path) {
-        return stackspotClient.getAccessToken()
-                .flatMap(token -> stackspotClient.callChatEndpoint(
-                        Collections.emptyList(),
-                        "scope: " + scope + ", path: " + path,
-                        token, chatEndpointController)
-                        .map(response -> ResponseEntity.ok(new ApiResponse(JsonUtils.extractMessage(response)))))
-                .onErrorResume(error -> {
-                    log.error("Erro na criação de novo endpoint: {}", error.getMessage());
-                    return Mono.just(ResponseEntity.internalServerError()
-                            .body(new ApiResponse("Erro na criação: " + error.getMessage())));
-                });
+    private ChatPlan processExistingScope(SourceTree sources, ControllerMatch match, String path) {
+        return ChatPlan.chat(
+                "Scope encontrado em " + match.className(),
+                chatEndpointController,
+                "scope: " + match.scope() + ", path: " + path,
+                token -> s3UploadClient.uploadFileToEndpoint(sources, match.filePath(), token)
+                        .map(Collections::singletonList),
+                "Erro no processamento: ");
     }
 
-    public Mono<ResponseEntity<ApiResponse>> processDirectMessage(String userMessage) {
-        log.info("Processando mensagem direta: {}", userMessage);
+    public ChatPlan createNewEndpoint(String scope, String path) {
+        return ChatPlan.chat(
+                "Nenhum endpoint encontrado, criando novo",
+                chatEndpointController,
+                "scope: " + scope + ", path: " + path,
+                "Erro na criação: ");
+    }
 
-        return stackspotClient.getAccessToken()
-                .flatMap(token -> stackspotClient.callChatEndpoint(
-                        Collections.emptyList(),
-                        userMessage,
-                        token, chatEndpointController)
-                        .map(response -> ResponseEntity.ok(new ApiResponse(JsonUtils.extractMessage(response)))))
-                .doOnSuccess(result -> log.info("Processamento direto de mensagem concluído com sucesso"))
-                .onErrorResume(error -> {
-                    log.error("Erro no processamento direto de mensagem: {}", error.getMessage());
-                    return Mono.just(ResponseEntity.internalServerError()
-                            .body(new ApiResponse("Erro no processamento: " + error.getMessage())));
-                });
+    public ChatPlan processDirectMessage(String userMessage) {
+        log.info("Processando mensagem direta: {}", userMessage);
+        return ChatPlan.chat("Mensagem direta", chatEndpointController, userMessage, "Erro no processamento: ");
     }
 }
@@ -1,19 +1,35 @@
 package com.example.demo.service;
 
 import com.example.demo.client.GithubClient;
+import com.example.demo.dto.ApiRequest;
 import com.example.demo.dto.ApiResponse;
-import com.example.demo.dto.ControllerMatch;
+import com.example.demo.dto.BatchResult;
+import com.example.demo.dto.ChatPlan;
 import com.example.demo.dto.RepoContext;
+import com.example.demo.dto.ScopePath;
 import com.example.demo.factory.ProcessorFactory;
+import com.example.demo.snapshot.SourceTree;
 import com.example.demo.util.DirectoryFinder;
+import com.example.demo.util.InFlightRequests;
+import com.example.demo.util.StageTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 public class GithubAnalysisService {
@@ -21,66 +37,232 @@ public class GithubAnalysisService {
     private static final Logger log = LoggerFactory.getLogger(GithubAnalysisService.class);
 
     private final GithubClient githubClient;
-    private final JavaSourceAnalyzer javaSourceAnalyzer;
+    private final RepositorySnapshotCache snapshotCache;
+    private final RepositoryIndexer repositoryIndexer;
     private final ControllerProcessor controllerProcessor;
-    private final ResourceManager resourceManager;
     private final ProcessorFactory processorFactory;
+    private final ChatResponder chatResponder;
+    private final AnalysisResultCache resultCache;
+    private final int batchConcurrency;
+    private final StageTimer stageTimer;
+    // Pedidos idênticos simultâneos compartilham a mesma análise (download, índice, uploads e chamada ao agente)
+    private final InFlightRequests<AnalysisKey, ResponseEntity<ApiResponse>> analyses;
+
+    private record AnalysisKey(String repoUrl, String scope, String path, String type) {
+    }
 
     public GithubAnalysisService(GithubClient githubClient,
-            JavaSourceAnalyzer javaSourceAnalyzer,
+            RepositorySnapshotCache snapshotCache,
+            RepositoryIndexer repositoryIndexer,
             ControllerProcessor controllerProcessor,
-            ResourceManager resourceManager,
-            ProcessorFactory processorFactory) {
+            ProcessorFactory processorFactory,
+            ChatResponder chatResponder,
+            AnalysisResultCache resultCache,
+            @Value("${analysis.batch.concurrency}") int batchConcurrency,
+            MeterRegistry meterRegistry) {
         this.githubClient = githubClient;
-        this.javaSourceAnalyzer = javaSourceAnalyzer;
+        this.snapshotCache = snapshotCache;
+        this.repositoryIndexer = repositoryIndexer;
         this.controllerProcessor = controllerProcessor;
-        this.resourceManager = resourceManager;
         this.processorFactory = processorFactory;
+        this.chatResponder = chatResponder;
+        this.resultCache = resultCache;
+        this.batchConcurrency = batchConcurrency;
+        this.stageTimer = new StageTimer(meterRegistry);
+        this.analyses = new InFlightRequests<>(Counter.builder("requests.coalesced")
+                .description("Chamadas atendidas por um trabalho idêntico já em andamento")
+                .tag("stage", "analysis")
+                .register(meterRegistry));
+    }
+
+    /**
+     * URL do zip a analisar para o {@code repoUrl} e {@code ref} da requisição (ambos opcionais).
+     *
+     * @throws IllegalArgumentException se o repositório não for aceito
+     */
+    public String resolveRepository(String repoUrl, String ref) {
+        return githubClient.resolveArchiveUrl(repoUrl, ref);
     }
 
-    public Mono<ResponseEntity<ApiResponse>> analyzeRepository(String scope, String path, String type) {
-        log.info("Iniciando análise do repositório - Scope: {}, Path: {}, Type: {}", scope, path, type);
+    /**
+     * Analisa o repositório ({@code repoUrl} já resolvido por {@link #resolveRepository}) e responde com o
+     * agente. Respostas para o mesmo snapshot, scope, path, tipo e agente vêm do {@link AnalysisResultCache}, a
+     * menos que {@code bypassCache} peça uma resposta nova. Chamadas idênticas que chegam enquanto uma análise
+     * está em andamento recebem o resultado dela.
+     */
+    public Mono<ResponseEntity<ApiResponse>> analyzeRepository(String repoUrl, String scope, String path,
+            String type, boolean bypassCache) {
+        log.info("Iniciando análise do repositório {} - Scope: {}, Path: {}, Type: {}",
+                repoUrl, scope, path, type);
 
-        return githubClient.downloadRepository()
-                .flatMap(zipPath -> processRepository(zipPath, scope, path, type))
+        Mono<ResponseEntity<ApiResponse>> analysis = bypassCache
+                ? processRepository(repoUrl, scope, path, type, true)
+                : analyses.join(new AnalysisKey(repoUrl, scope, path, type.toLowerCase(Locale.ROOT)),
+                        () -> processRepository(repoUrl, scope, path, type, false));
+        return analysis
                 .doOnSuccess(result -> log.info("Análise do repositório concluída com sucesso"))
                 .doOnError(error -> log.error("Erro na análise do repositório: {}", error.getMessage()));
     }
 
-    private Mono<ResponseEntity<ApiResponse>> processRepository(String zipPath, String scope, String path,
+    private Mono<ResponseEntity<ApiResponse>> processRepository(String repoUrl, String scope, String path,
+            String type, boolean bypassCache) {
+        return Mono.usingWhen(
+                acquireSnapshot(repoUrl, type),
+                snapshot -> repoContext(snapshot, type)
+                        .flatMap(context -> respond(snapshot, context, new ScopePath(scope, path), type,
+                                chatResponder.accessToken(), bypassCache)),
+                snapshot -> Mono.fromRunnable(snapshot::release));
+    }
+
+    private Mono<ResponseEntity<ApiResponse>> respond(RepositorySnapshot snapshot, RepoContext context,
+            ScopePath request, String type, Mono<String> accessToken, boolean bypassCache) {
+        return processMatches(context, request.scope(), request.path(), type)
+                .flatMap(plan -> plan.needsChat()
+                        ? resultCache.get(
+                                new AnalysisResultCache.Key(snapshot.repoUrl(), snapshot.etag(), request.scope(),
+                                        request.path(), type, plan.chatEndpoint()),
+                                bypassCache, () -> chatResponder.respond(plan, type, accessToken))
+                        : chatResponder.respond(plan, type, accessToken));
+    }
+
+    /**
+     * Responde vários pedidos com um único snapshot e índice por repositório e um único token, no máximo
+     * {@code analysis.batch.concurrency} por vez. Cada resultado é emitido assim que fica pronto; falhas viram
+     * resultados com status de erro.
+     */
+    public Flux<BatchResult> analyzeBatch(List<ApiRequest> requests, boolean bypassCache) {
+        log.info("Iniciando análise em lote de {} itens", requests.size());
+        // Obtido uma única vez, na primeira resposta que precisar dele
+        Mono<String> accessToken = chatResponder.accessToken().cache();
+
+        Map<String, List<Integer>> repositoryItems = new LinkedHashMap<>();
+        List<Integer> otherItems = new ArrayList<>();
+        List<BatchResult> rejected = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ApiRequest request = requests.get(i);
+            if (request.scopePath().isEmpty()) {
+                otherItems.add(i);
+                continue;
+            }
+            try {
+                repositoryItems.computeIfAbsent(resolveRepository(request.repoUrl(), request.ref()),
+                        url -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                rejected.add(new BatchResult(i, request.message(), HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+            }
+        }
+
+        Flux<BatchResult> direct = Flux.fromIterable(otherItems)
+                .flatMap(i -> {
+                    ApiRequest request = requests.get(i);
+                    if (request.isBlank()) {
+                        return Mono.just(new BatchResult(i, request.message(), HttpStatus.BAD_REQUEST.value(),
+                                "A mensagem não pode ser vazia"));
+                    }
+                    return chatResponder.respond(controllerProcessor.processDirectMessage(request.message()),
+                            StageTimer.DIRECT, accessToken).map(response -> batchResult(i, request, response));
+                }, batchConcurrency);
+
+        Flux<BatchResult> analyses = Flux.fromIterable(repositoryItems.entrySet())
+                .flatMap(entry -> analyzeBatchRepository(entry.getKey(), entry.getValue(), requests, accessToken,
+                        bypassCache));
+
+        return Flux.merge(Flux.fromIterable(rejected), analyses, direct)
+                .doOnComplete(() -> log.info("Análise em lote de {} itens concluída", requests.size()));
+    }
+
+    private Flux<BatchResult> analyzeBatchRepository(String repoUrl, List<Integer> items, List<ApiRequest> requests,
+            Mono<String> accessToken, boolean bypassCache) {
+        return Flux.usingWhen(
+                acquireSnapshot(repoUrl, StageTimer.BATCH),
+                snapshot -> repoContext(snapshot, StageTimer.BATCH).flatMapMany(context -> Flux.fromIterable(items)
+                        .flatMap(i -> {
+                            ApiRequest request = requests.get(i);
+                            return respond(snapshot, context, request.scopePath().orElseThrow(),
+                                    request.typeOrDefault(), accessToken, bypassCache)
+                                    .map(response -> batchResult(i, request, response))
+                                    .onErrorResume(error -> Mono.just(batchFailure(i, request, error)));
+                        }, batchConcurrency)),
+                snapshot -> Mono.fromRunnable(snapshot::release))
+                // Falha no download ou no índice: nenhum item deste repositório foi respondido ainda
+                .onErrorResume(error -> Flux.fromIterable(items)
+                        .map(i -> batchFailure(i, requests.get(i), error)));
+    }
+
+    private static BatchResult batchResult(int index, ApiRequest request, ResponseEntity<ApiResponse> response) {
+        return new BatchResult(index, request.message(), response.getStatusCode().value(),
+                response.getBody() != null ? response.getBody().response() : null);
+    }
+
+    private static BatchResult batchFailure(int index, ApiRequest request, Throwable error) {
+        log.error("Erro no item {} do lote: {}", index, error.getMessage());
+        return new BatchResult(index, request.message(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "Erro no processamento: " + error.getMessage());
+    }
+
+    /**
+     * Mesma análise em Server-Sent Events: o progresso ({@code downloaded}, {@code parsed}, {@code matched},
+     * {@code uploaded}) chega antes da resposta do agente, que é repassada em trechos ({@code message}).
+     * Termina com {@code done} ou {@code error}.
+     */
+    public Flux<ServerSentEvent<String>> streamRepositoryAnalysis(String repoUrl, String scope, String path,
             String type) {
-        return resourceManager.extractRepository(zipPath)
-                .flatMap(extractDir -> findControllersDirectory(extractDir))
-                .flatMap(controllersDir -> analyzeJavaFilesAsync(controllersDir, scope, path, zipPath))
-                .flatMap(context -> processMatches(context, scope, path, type))
-                .doFinally(signalType -> resourceManager.cleanupResources(zipPath));
+        log.info("Iniciando análise em streaming de {} - Scope: {}, Path: {}, Type: {}", repoUrl, scope, path, type);
+
+        return finishStream(Flux.usingWhen(
+                acquireSnapshot(repoUrl, type),
+                snapshot -> Flux.just(ChatResponder.event("downloaded", "Snapshot " + snapshot.etag()))
+                        .concatWith(repoContext(snapshot, type).flatMapMany(context -> Flux
+                                .just(ChatResponder.event("parsed",
+                                        context.index().endpoints().size() + " endpoints indexados"))
+                                .concatWith(processMatches(context, scope, path, type)
+                                        .flatMapMany(plan -> chatResponder.stream(plan, type))))),
+                snapshot -> Mono.fromRunnable(snapshot::release)));
     }
 
-    private Mono<String> findControllersDirectory(String extractDir) {
-        return Mono.fromCallable(() -> {
-            log.debug("Procurando diretório de controllers");
-            return DirectoryFinder.findControllersDirectory(extractDir);
-        }).subscribeOn(Schedulers.boundedElastic());
+    public Flux<ServerSentEvent<String>> streamDirectMessage(String userMessage) {
+        return finishStream(chatResponder.stream(controllerProcessor.processDirectMessage(userMessage),
+                StageTimer.DIRECT));
     }
 
-    private Mono<RepoContext> analyzeJavaFilesAsync(String controllersDir, String scope, String path, String zipPath) {
+    private Flux<ServerSentEvent<String>> finishStream(Flux<ServerSentEvent<String>> events) {
+        return events
+                .concatWith(Mono.just(ChatResponder.event("done", "")))
+                .onErrorResume(error -> {
+                    log.error("Erro na análise em streaming: {}", error.getMessage());
+                    return Mono.just(ChatResponder.event("error", error.getMessage()));
+                });
+    }
+
+    private Mono<RepositorySnapshot> acquireSnapshot(String repoUrl, String type) {
+        return stageTimer.time("snapshot", type, snapshotCache.acquire(repoUrl))
+                .onErrorMap(e -> new RuntimeException("Falha ao baixar repositório: " + e.getMessage(), e));
+    }
+
+    private Mono<RepoContext> repoContext(RepositorySnapshot snapshot, String type) {
+        SourceTree sources = snapshot.sources();
+        return stageTimer.time("index", type, findControllersDirectory(sources)
+                .flatMap(controllersDir -> snapshot
+                        .index(() -> repositoryIndexer.buildIndex(snapshot, controllersDir))
+                        .map(index -> new RepoContext(sources, controllersDir, index))));
+    }
+
+    private Mono<String> findControllersDirectory(SourceTree sources) {
         return Mono.fromCallable(() -> {
-            log.debug("Analisando arquivos Java no diretório: {}", controllersDir);
-            List<ControllerMatch> matches = javaSourceAnalyzer.analyzeJavaFiles(controllersDir, scope, path);
-            log.info("Encontrados {} matches no repositório", matches.size());
-            return new RepoContext(zipPath, controllersDir, matches);
+            log.debug("Procurando diretório de controllers");
+            return DirectoryFinder.findControllersDirectory(sources, sources.root().toString());
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
-    private Mono<ResponseEntity<ApiResponse>> processMatches(RepoContext context, String scope, String path,
-            String type) {
+    private Mono<ChatPlan> processMatches(RepoContext context, String scope, String path, String type) {
         log.info("Processando matches com type: {}", type);
 
-        return processorFactory.getProcessor(type)
-                .process(context.matches(), scope, path);
+        return stageTimer.time("match", type, processorFactory.getProcessor(type)
+                .process(context, scope, path));
     }
 
     public Mono<ResponseEntity<ApiResponse>> processDirectMessage(String userMessage) {
-        return controllerProcessor.processDirectMessage(userMessage);
+        return chatResponder.respond(controllerProcessor.processDirectMessage(userMessage))
+                .doOnSuccess(result -> log.info("Processamento direto de mensagem concluído com sucesso"));
     }
 }
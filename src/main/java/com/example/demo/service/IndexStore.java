@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.analysis.RepositoryIndexCodec;
+import com.example.demo.util.ContentHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Guarda o último índice de cada repositório em disco, identificado pelo ETag do snapshot, para que uma
+ * instância recém-iniciada não precise analisar todos os fontes de novo. Um diretório vazio desativa o
+ * armazenamento.
+ */
+@Component
+public class IndexStore {
+    private static final Logger log = LoggerFactory.getLogger(IndexStore.class);
+
+    private final Path baseDir;
+
+    public IndexStore(@Value("${index.store.dir}") String baseDir) {
+        this.baseDir = baseDir == null || baseDir.isBlank() ? null : Paths.get(baseDir);
+    }
+
+    public Optional<RepositoryIndexCodec.Decoded> load(String repoUrl) {
+        if (baseDir == null) {
+            return Optional.empty();
+        }
+        Path file = fileFor(repoUrl);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RepositoryIndexCodec.Decoded decoded = RepositoryIndexCodec.read(buffer);
+            log.info("Índice persistido carregado para {} (ETag: {}, {} endpoints)", repoUrl, decoded.etag(),
+                    decoded.index().size());
+            return Optional.of(decoded);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Índice persistido inválido em {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Grava o índice com caminhos relativos a {@code root}. A gravação é feita num arquivo temporário e
+     * movida de forma atômica, para que uma leitura concorrente nunca veja um arquivo pela metade.
+     */
+    public void save(String repoUrl, String etag, Path root, RepositoryIndex index) {
+        if (baseDir == null || etag == null) {
+            return;
+        }
+        Path file = fileFor(repoUrl);
+        Path temp = null;
+        try {
+            Files.createDirectories(baseDir);
+            temp = Files.createTempFile(baseDir, "index-", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                RepositoryIndexCodec.write(index, root, etag, out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Índice de {} persistido em {} (ETag: {})", repoUrl, file, etag);
+        } catch (IOException e) {
+            log.warn("Falha ao persistir índice de {}: {}", repoUrl, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // o arquivo temporário será sobrescrito na próxima gravação
+                }
+            }
+        }
+    }
+
+    private Path fileFor(String repoUrl) {
+        return baseDir.resolve(ContentHash.sha1Hex(repoUrl) + ".idx");
+    }
+}
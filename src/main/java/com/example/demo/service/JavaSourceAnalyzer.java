@@ -1,142 +1,177 @@
 package com.example.demo.service;
 
-import com.example.demo.dto.ControllerMatch;
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.example.demo.analysis.AnalysisEngine;
+import com.example.demo.analysis.AnnotationScannerEngine;
+import com.example.demo.analysis.FileSummary;
+import com.example.demo.analysis.JavaParserEngine;
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.util.ContentHash;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Component
 public class JavaSourceAnalyzer {
     private static final Logger log = LoggerFactory.getLogger(JavaSourceAnalyzer.class);
-    private final JavaParser javaParser;
 
-    public JavaSourceAnalyzer() {
-        this.javaParser = new JavaParser();
+    private final AnalysisEngine engine;
+    private final ForkJoinPool analysisPool;
+
+    private final Counter walkedFiles;
+    private final Counter prefilterSkips;
+    private final Counter nonControllerSkips;
+    private final Counter parsedFiles;
+    private final Counter reusedFiles;
+    private final Counter failedFiles;
+
+    public JavaSourceAnalyzer(@Value("${analyzer.engine}") AnalysisEngineType engineType,
+            @Value("${analyzer.parallelism}") int parallelism, MeterRegistry meterRegistry) {
+        this.engine = switch (engineType) {
+        case SCANNER -> new AnnotationScannerEngine();
+        case JAVAPARSER -> new JavaParserEngine();
+        };
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.analysisPool = new ForkJoinPool(threads);
+        log.debug("Análise de fontes com engine {} e paralelismo {}", engineType, threads);
+
+        this.walkedFiles = Counter.builder("analyzer.files.walked")
+                .description("Arquivos Java encontrados nos diretórios analisados")
+                .register(meterRegistry);
+        this.prefilterSkips = skipCounter(meterRegistry, "prefilter");
+        this.nonControllerSkips = skipCounter(meterRegistry, "not_controller");
+        this.parsedFiles = Counter.builder("analyzer.files.parsed")
+                .description("Arquivos Java enviados à engine de análise")
+                .register(meterRegistry);
+        this.reusedFiles = Counter.builder("analyzer.files.reused")
+                .description("Arquivos Java cujo resumo foi reaproveitado de um snapshot anterior")
+                .register(meterRegistry);
+        this.failedFiles = Counter.builder("analyzer.files.failed")
+                .description("Arquivos Java que não puderam ser lidos ou cuja sintaxe a engine não reconheceu")
+                .register(meterRegistry);
     }
 
-    public List<ControllerMatch> analyzeJavaFiles(String directory, String scope, String path) {
-        List<ControllerMatch> result = new ArrayList<>();
+    private static Counter skipCounter(MeterRegistry meterRegistry, String stage) {
+        return Counter.builder("analyzer.files.skipped")
+                .description("Arquivos Java descartados antes de entrar no índice")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analysisPool.shutdown();
+    }
+
+    /**
+     * Extrai todos os endpoints dos controllers do diretório, independentemente de scope/path, para que as
+     * consultas seguintes sejam respondidas pelo índice.
+     */
+    public RepositoryIndex buildIndex(SourceTree sources, String directory) {
+        return buildIndex(sources, directory, null);
+    }
+
+    /**
+     * Monta o índice reaproveitando os resumos de {@code previous} para arquivos com o mesmo conteúdo (hash de
+     * blob do git). Só arquivos novos ou alterados são analisados; os removidos deixam de existir no índice.
+     */
+    public RepositoryIndex buildIndex(SourceTree sources, String directory, RepositoryIndex previous) {
+        SourcePrefilter prefilter = SourcePrefilter.controllersOnly();
+        List<RepositoryIndex.Entry> entries = analyzeInParallel(listJavaFiles(sources, directory),
+                javaPath -> indexJavaFile(sources, javaPath, prefilter, previous));
+        RepositoryIndex index = RepositoryIndex.of(entries);
+        log.info("Índice montado com {} endpoints a partir de {} arquivos", index.size(), entries.size());
+        return index;
+    }
 
+    private List<Path> listJavaFiles(SourceTree sources, String directory) {
         Path dirPath = Paths.get(directory);
-        if (!Files.exists(dirPath)) {
+        if (!sources.isDirectory(dirPath)) {
             log.warn("Diretório não existe: {}", directory);
-            return result;
+            return List.of();
         }
 
-        try (Stream<Path> paths = Files.walk(dirPath)) {
-            paths.filter(p -> p.toString().endsWith(".java"))
-                    .forEach(javaPath -> analyzeJavaFile(javaPath, scope, path, result));
+        List<Path> javaFiles;
+        try (Stream<Path> paths = sources.walk(dirPath)) {
+            javaFiles = paths.filter(p -> p.toString().endsWith(".java"))
+                    .sorted()
+                    .toList();
         } catch (IOException e) {
             log.error("Erro ao percorrer diretório {}: {}", directory, e.getMessage());
+            return List.of();
         }
 
-        return result;
+        walkedFiles.increment(javaFiles.size());
+        return javaFiles;
     }
 
-    private void analyzeJavaFile(Path javaPath, String scope, String path, List<ControllerMatch> result) {
-        boolean scopeFound = false;
-        boolean pathFound = false;
-        String className = javaPath.getFileName().toString();
-
-        log.debug("Analisando arquivo Java: {}", javaPath);
-
+    private <T> List<T> analyzeInParallel(List<Path> javaFiles, Function<Path, Optional<T>> analysis) {
+        // O stream paralelo executa no pool dedicado e preserva a ordem dos arquivos no resultado
+        ForkJoinTask<List<T>> task = analysisPool.submit(() -> javaFiles.parallelStream()
+                .map(analysis)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toCollection(ArrayList::new)));
         try {
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(javaPath);
-            if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-                CompilationUnit cu = parseResult.getResult().get();
-
-                boolean isController = cu.findAll(AnnotationExpr.class).stream()
-                        .anyMatch(a -> a.getNameAsString().equals("RestController") ||
-                                a.getNameAsString().equals("Controller"));
-
-                if (isController) {
-                    log.debug("Arquivo {} é um controller, analisando métodos", className);
-                    for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
-                        if (hasScope(method, scope)) {
-                            scopeFound = true;
-                        }
-                        if (hasPath(method, path)) {
-                            pathFound = true;
-                            log.info("Encontrado método com path '{}' em {}: {}", path, className,
-                                    method.getNameAsString());
-                        }
-                    }
-                }
-            } else {
-                log.debug("Falha ao analisar arquivo: {}", javaPath);
-            }
-        } catch (Exception e) {
-            log.warn("Erro ao analisar arquivo {}: {}", javaPath, e.getMessage(), e);
-        }
-
-        if (scopeFound || pathFound) {
-            result.add(new ControllerMatch(javaPath, className, scopeFound, pathFound, scope));
-            log.debug("Match encontrado em {}: scope={}, path={}", className, scopeFound, pathFound);
-        }
-    }
-
-    private boolean hasScope(MethodDeclaration method, String scope) {
-        Optional<AnnotationExpr> preAuthorize = method.getAnnotationByName("PreAuthorize");
-        if (!preAuthorize.isPresent()) {
-            return false;
-        }
-
-        String annotation = preAuthorize.get().toString();
-        log.debug("Verificando anotação @PreAuthorize: {}", annotation);
-
-        boolean hasHashScope = annotation.contains("#oauth2.hasScope('" + scope + "')");
-        boolean hasNoHashScope = annotation.contains("oauth2.hasScope('" + scope + "')");
-
-        if (hasHashScope || hasNoHashScope) {
-            log.info("Encontrado método com scope '{}' em {}: {} (formato: {})",
-                    scope,
-                    method.getNameAsString(),
-                    annotation,
-                    hasHashScope ? "com #" : "sem #");
-            return true;
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Análise de arquivos Java interrompida", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Falha na análise de arquivos Java: " + e.getCause().getMessage(), e.getCause());
         }
-
-        return false;
     }
 
-    private boolean hasPath(MethodDeclaration method, String path) {
-        Optional<AnnotationExpr> mapping = method.getAnnotationByName("GetMapping")
-                .or(() -> method.getAnnotationByName("PostMapping"))
-                .or(() -> method.getAnnotationByName("RequestMapping"));
-
-        if (!mapping.isPresent()) {
-            return false;
-        }
-
-        String annotation = mapping.get().toString();
-        log.debug("Verificando anotação de mapeamento: {}", annotation);
+    private Optional<RepositoryIndex.Entry> indexJavaFile(SourceTree sources, Path javaPath,
+            SourcePrefilter prefilter, RepositoryIndex previous) {
+        log.debug("Indexando arquivo Java: {}", javaPath);
 
-        boolean hasPathAttribute = annotation.contains("path = \"" + path + "\"");
-        boolean hasValueAttribute = annotation.contains("value = \"" + path + "\"");
-        boolean hasDirectPath = annotation.contains("\"" + path + "\"");
+        try {
+            ByteBuffer content = sources.content(javaPath);
+            if (!prefilter.isCandidate(content)) {
+                prefilterSkips.increment();
+                return Optional.empty();
+            }
 
-        if (hasPathAttribute || hasValueAttribute || hasDirectPath) {
-            log.info("Encontrado método com path '{}' em {}: {}",
-                    path,
-                    method.getNameAsString(),
-                    annotation);
-            return true;
+            String hash = ContentHash.gitBlobSha1(content);
+            Optional<FileSummary> summary = previous != null ? previous.summaryFor(hash, javaPath) : Optional.empty();
+            if (summary.isPresent()) {
+                reusedFiles.increment();
+            } else {
+                parsedFiles.increment();
+                String source = StandardCharsets.UTF_8.decode(content).toString();
+                summary = engine.summarize(javaPath, source);
+            }
+            if (summary.isEmpty()) {
+                failedFiles.increment();
+            } else if (!summary.get().controller()) {
+                nonControllerSkips.increment();
+            }
+            // Arquivos que não são controllers também entram, para não serem analisados de novo
+            return summary.map(s -> new RepositoryIndex.Entry(javaPath, hash, s));
+        } catch (Exception e) {
+            log.warn("Erro ao indexar arquivo {}: {}", javaPath, e.getMessage(), e);
+            failedFiles.increment();
         }
-
-        return false;
+        return Optional.empty();
     }
 }
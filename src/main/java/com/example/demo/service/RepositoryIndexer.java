@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.analysis.RepositoryIndexCodec;
+import com.example.demo.snapshot.SourceTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Monta o índice de um snapshot aproveitando o que já existe: o índice da versão anterior em memória ou,
+ * depois de um restart, o índice persistido. Com o mesmo ETag o índice persistido é usado sem reanalisar
+ * nenhum arquivo.
+ */
+@Component
+public class RepositoryIndexer {
+    private static final Logger log = LoggerFactory.getLogger(RepositoryIndexer.class);
+
+    private final JavaSourceAnalyzer javaSourceAnalyzer;
+    private final IndexStore indexStore;
+
+    public RepositoryIndexer(JavaSourceAnalyzer javaSourceAnalyzer, IndexStore indexStore) {
+        this.javaSourceAnalyzer = javaSourceAnalyzer;
+        this.indexStore = indexStore;
+    }
+
+    public Mono<RepositoryIndex> buildIndex(RepositorySnapshot snapshot, String controllersDir) {
+        return Mono.fromCallable(() -> {
+            SourceTree sources = snapshot.sources();
+            RepositoryIndex previous = snapshot.previousIndex();
+
+            if (previous == null) {
+                Optional<RepositoryIndexCodec.Decoded> stored = indexStore.load(snapshot.repoUrl());
+                if (stored.isPresent() && snapshot.etag() != null && snapshot.etag().equals(stored.get().etag())) {
+                    log.info("Índice persistido está atualizado (ETag: {}), análise dos fontes dispensada",
+                            snapshot.etag());
+                    return stored.get().index().rebase(Path.of(""), sources.root());
+                }
+                // Índice de outra versão: serve de base para reanalisar só os arquivos alterados
+                previous = stored.map(RepositoryIndexCodec.Decoded::index).orElse(null);
+            }
+
+            log.debug("Indexando arquivos Java no diretório: {}", controllersDir);
+            RepositoryIndex index = javaSourceAnalyzer.buildIndex(sources, controllersDir, previous);
+            indexStore.save(snapshot.repoUrl(), snapshot.etag(), sources.root(), index);
+            return index;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.snapshot.SourceTree;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Árvore extraída de uma versão (ETag) do repositório, compartilhada entre as análises. A referência do
+ * próprio cache conta como um uso; as fontes só são liberadas quando o snapshot é substituído e a última
+ * análise que o utiliza termina.
+ */
+public final class RepositorySnapshot {
+
+    private final String repoUrl;
+    private final String etag;
+    private final SourceTree sources;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicReference<Mono<RepositoryIndex>> index = new AtomicReference<>();
+    private volatile RepositoryIndex builtIndex;
+    private volatile RepositoryIndex previousIndex;
+    private volatile Instant validatedAt;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    RepositorySnapshot(String repoUrl, String etag, SourceTree sources) {
+        this.repoUrl = repoUrl;
+        this.etag = etag;
+        this.sources = sources;
+        this.validatedAt = Instant.now();
+    }
+
+    public String repoUrl() {
+        return repoUrl;
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    public String extractDir() {
+        return sources.root().toString();
+    }
+
+    public SourceTree sources() {
+        return sources;
+    }
+
+    /**
+     * Índice de endpoints do snapshot, montado pelo primeiro chamador e compartilhado com os demais. Chamadas
+     * concorrentes aguardam a mesma montagem; uma falha não fica em cache.
+     */
+    public Mono<RepositoryIndex> index(Supplier<Mono<RepositoryIndex>> builder) {
+        Mono<RepositoryIndex> current = index.get();
+        if (current != null) {
+            return current;
+        }
+        AtomicReference<Mono<RepositoryIndex>> self = new AtomicReference<>();
+        Mono<RepositoryIndex> building = Mono.defer(builder)
+                .doOnNext(built -> {
+                    builtIndex = built;
+                    previousIndex = null;
+                })
+                // Antes do cache: a falha é descartada mesmo que quem disparou a montagem já tenha cancelado
+                .doOnError(e -> index.compareAndSet(self.get(), null))
+                .cache();
+        self.set(building);
+        if (!index.compareAndSet(null, building)) {
+            return index.get();
+        }
+        return building;
+    }
+
+    /**
+     * Índice da versão anterior do repositório, usado para reindexar só os arquivos alterados. Fica
+     * disponível até o índice deste snapshot ser montado.
+     */
+    public RepositoryIndex previousIndex() {
+        return previousIndex;
+    }
+
+    void inheritIndex(RepositorySnapshot previous) {
+        RepositoryIndex inherited = previous.builtIndex != null ? previous.builtIndex : previous.previousIndex;
+        if (builtIndex == null) {
+            previousIndex = inherited;
+        }
+    }
+
+    Instant validatedAt() {
+        return validatedAt;
+    }
+
+    /**
+     * Instante (em {@link System#nanoTime()}) da última aquisição, usado para escolher o repositório menos
+     * usado recentemente quando o pool de snapshots excede seus limites.
+     */
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    void markValidated() {
+        this.validatedAt = Instant.now();
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = references.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        lastUsedNanos = System.nanoTime();
+        return true;
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            sources.close();
+        }
+    }
+}
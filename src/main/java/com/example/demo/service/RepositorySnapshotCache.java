@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import com.example.demo.client.GithubClient;
+import com.example.demo.util.InFlightRequests;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class RepositorySnapshotCache {
+    private static final Logger log = LoggerFactory.getLogger(RepositorySnapshotCache.class);
+
+    private final GithubClient githubClient;
+    private final ResourceManager resourceManager;
+    private final Duration maxAge;
+    private final int maxRepos;
+    private final long maxBytes;
+    // Um snapshot por repositório (URL do zip); ao exceder os limites, os menos usados recentemente saem
+    private final ConcurrentMap<String, RepositorySnapshot> snapshots = new ConcurrentHashMap<>();
+    // Um único download/revalidação por repositório em andamento; os demais chamadores aguardam o mesmo
+    private final InFlightRequests<String, RepositorySnapshot> refreshes;
+
+    private final Counter hits;
+    private final Counter revalidations;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public RepositorySnapshotCache(GithubClient githubClient, ResourceManager resourceManager,
+            MeterRegistry meterRegistry,
+            @Value("${snapshot.cache.max-age}") Duration maxAge,
+            @Value("${snapshot.pool.max-repos}") int maxRepos,
+            @Value("${snapshot.pool.max-bytes}") long maxBytes) {
+        this.githubClient = githubClient;
+        this.resourceManager = resourceManager;
+        this.maxAge = maxAge;
+        this.maxRepos = maxRepos;
+        this.maxBytes = maxBytes;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.revalidations = requestCounter(meterRegistry, "not_modified");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.refreshes = new InFlightRequests<>(Counter.builder("requests.coalesced")
+                .description("Chamadas atendidas por um trabalho idêntico já em andamento")
+                .tag("stage", "download")
+                .register(meterRegistry));
+        this.evictions = Counter.builder("snapshot.pool.evictions")
+                .description("Snapshots descartados por exceder o limite de repositórios ou de bytes do pool")
+                .register(meterRegistry);
+        Gauge.builder("snapshot.pool.repositories", snapshots, Map::size)
+                .description("Repositórios com snapshot mantido em cache")
+                .register(meterRegistry);
+        Gauge.builder("snapshot.pool.bytes", snapshots, RepositorySnapshotCache::totalBytes)
+                .description("Bytes de conteúdo mantidos pelos snapshots em cache")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("snapshot.cache.requests")
+                .description("Consultas ao cache de snapshots do repositório")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public Mono<RepositorySnapshot> acquire() {
+        return acquire(githubClient.getRepositoryUrl());
+    }
+
+    /**
+     * Obtém o snapshot do repositório, reutilizando a árvore já extraída enquanto ela estiver dentro do
+     * max-age ou o servidor responder 304. O chamador deve invocar {@link RepositorySnapshot#release()}.
+     */
+    public Mono<RepositorySnapshot> acquire(String repoUrl) {
+        return Mono.defer(() -> {
+            RepositorySnapshot current = snapshots.get(repoUrl);
+            if (current != null && isFresh(current) && current.tryAcquire()) {
+                log.debug("Snapshot em cache para {} (ETag: {})", repoUrl, current.etag());
+                hits.increment();
+                return Mono.just(current);
+            }
+            return refreshes.join(repoUrl, () -> refresh(repoUrl, current))
+                    // Cada chamador precisa da sua própria referência ao snapshot compartilhado
+                    .flatMap(snapshot -> snapshot.tryAcquire() ? Mono.just(snapshot) : acquire(repoUrl));
+        });
+    }
+
+    private boolean isFresh(RepositorySnapshot snapshot) {
+        return snapshot.validatedAt().plus(maxAge).isAfter(Instant.now());
+    }
+
+    private Mono<RepositorySnapshot> refresh(String repoUrl, RepositorySnapshot current) {
+        String etag = current != null ? current.etag() : null;
+
+        return githubClient.downloadIfModified(repoUrl, etag, (newEtag, body) -> extract(repoUrl, newEtag, body))
+                .map(snapshot -> {
+                    misses.increment();
+                    install(repoUrl, snapshot);
+                    return snapshot;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    current.markValidated();
+                    revalidations.increment();
+                    return current;
+                }));
+    }
+
+    private Mono<RepositorySnapshot> extract(String repoUrl, String etag, Flux<DataBuffer> body) {
+        return resourceManager.extractSourceTree(body)
+                .map(sources -> new RepositorySnapshot(repoUrl, etag, sources));
+    }
+
+    private void install(String repoUrl, RepositorySnapshot snapshot) {
+        RepositorySnapshot previous = snapshots.put(repoUrl, snapshot);
+        if (previous != null) {
+            log.info("Snapshot de {} atualizado: {} -> {}", repoUrl, previous.etag(), snapshot.etag());
+            snapshot.inheritIndex(previous);
+            previous.release();
+        }
+        evictExcess(repoUrl);
+    }
+
+    /**
+     * Descarta os snapshots menos usados recentemente até o pool voltar aos limites, preservando o recém
+     * instalado. Análises em andamento mantêm suas referências; as fontes são liberadas quando terminarem.
+     */
+    private synchronized void evictExcess(String installedUrl) {
+        while (snapshots.size() > maxRepos || totalBytes() > maxBytes) {
+            Map.Entry<String, RepositorySnapshot> eldest = snapshots.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(installedUrl))
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsedNanos()))
+                    .orElse(null);
+            if (eldest == null) {
+                return;
+            }
+            if (snapshots.remove(eldest.getKey(), eldest.getValue())) {
+                log.info("Snapshot de {} descartado do pool (ETag: {})", eldest.getKey(), eldest.getValue().etag());
+                evictions.increment();
+                eldest.getValue().release();
+            }
+        }
+    }
+
+    long totalBytes() {
+        return totalBytes(snapshots);
+    }
+
+    private static long totalBytes(Map<String, RepositorySnapshot> snapshots) {
+        return snapshots.values().stream().mapToLong(snapshot -> snapshot.sources().sizeInBytes()).sum();
+    }
+}
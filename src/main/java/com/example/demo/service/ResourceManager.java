@@ -1,33 +1,151 @@
 package com.example.demo.service;
 
+import com.example.demo.enums.SnapshotBackend;
+import com.example.demo.snapshot.FileSystemSourceTree;
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
 import com.example.demo.util.FileUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.io.File;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class ResourceManager {
     private static final Logger log = LoggerFactory.getLogger(ResourceManager.class);
+    private static final int ARCHIVE_PREFETCH = 16;
 
-    public void cleanupResources(String zipPath) {
-        try {
-            log.debug("Limpando recursos temporários");
-            FileUtils.deleteDirectoryQuietly(Paths.get(zipPath));
-            FileUtils.deleteDirectory(new File("repo"));
-        } catch (Exception e) {
-            log.warn("Erro ao limpar recursos: {}", e.getMessage());
-        }
+    private final WorkspaceManager workspaceManager;
+    private final SnapshotBackend backend;
+    private final long maxMemoryBytes;
+    // Bytes reservados por todas as árvores em memória abertas no processo
+    private final AtomicLong memoryBytes = new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter extractedBytes;
+    private final Counter extractedFiles;
+
+    public ResourceManager(WorkspaceManager workspaceManager,
+            @Value("${snapshot.backend}") SnapshotBackend backend,
+            @Value("${snapshot.memory.max-bytes}") long maxMemoryBytes,
+            MeterRegistry meterRegistry) {
+        this.workspaceManager = workspaceManager;
+        this.backend = backend;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.meterRegistry = meterRegistry;
+        this.extractedBytes = Counter.builder("snapshot.extract.bytes")
+                .description("Bytes de fontes extraídos dos arquivos de repositório")
+                .baseUnit("bytes")
+                .tag("backend", backend.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        this.extractedFiles = Counter.builder("snapshot.extract.files")
+                .description("Arquivos relevantes para análise extraídos dos arquivos de repositório")
+                .tag("backend", backend.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        Gauge.builder("snapshot.memory.bytes", memoryBytes, AtomicLong::get)
+                .description("Bytes de fontes mantidos pelos snapshots em memória abertos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private Timer extractTimer(String outcome) {
+        return Timer.builder("snapshot.extract.duration")
+                .description("Duração da extração do arquivo do repositório (inclui a espera pelo download)")
+                .tag("backend", backend.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Mono<Workspace> acquireWorkspace() {
+        return workspaceManager.acquire();
+    }
+
+    public Mono<Void> cleanupResources(Workspace workspace) {
+        return Mono.fromRunnable(() -> {
+            log.debug("Liberando workspace: {}", workspace);
+            workspaceManager.release(workspace);
+        });
+    }
+
+    /**
+     * Descompacta o arquivo enquanto ele ainda está sendo baixado, mantendo apenas fontes Java e arquivos
+     * de build. Nenhum ZIP intermediário é gravado em disco.
+     */
+    public Mono<String> extractRepository(Flux<DataBuffer> archive, Workspace workspace) {
+        return Mono.fromCallable(() -> {
+            log.debug("Extraindo repositório em streaming para: {}", workspace);
+            try (InputStream in = DataBufferUtils.subscriberInputStream(archive, ARCHIVE_PREFETCH)) {
+                int extracted = FileUtils.unzipStream(in, workspace.root().toString(), FileUtils::isAnalysisSource,
+                        bytes -> workspaceManager.recordUsage(workspace, bytes));
+                extractedFiles.increment(extracted);
+                log.info("Extraídos {} arquivos relevantes para análise ({} bytes)", extracted,
+                        workspace.usedBytes());
+            }
+            return workspace.root().toString();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Extrai o arquivo para o backend de snapshot configurado. Fechar a árvore devolvida libera o workspace
+     * em disco ou a memória ocupada.
+     */
+    public Mono<SourceTree> extractSourceTree(Flux<DataBuffer> archive) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Mono<SourceTree> extraction = backend == SnapshotBackend.MEMORY
+                    ? extractToMemory(archive)
+                    : acquireWorkspace()
+                            .flatMap(workspace -> extractRepository(archive, workspace)
+                                    .<SourceTree>map(extractDir -> new FileSystemSourceTree(workspace.root(),
+                                            workspace.usedBytes(), () -> workspaceManager.release(workspace)))
+                                    .onErrorResume(e -> cleanupResources(workspace).then(Mono.error(e))));
+            return extraction
+                    .doOnSuccess(tree -> {
+                        extractedBytes.increment(tree.sizeInBytes());
+                        sample.stop(extractTimer("success"));
+                    })
+                    .doOnError(e -> sample.stop(extractTimer("error")));
+        });
     }
 
-    public Mono<String> extractRepository(String zipPath) {
+    private Mono<SourceTree> extractToMemory(Flux<DataBuffer> archive) {
         return Mono.fromCallable(() -> {
-            log.debug("Extraindo repositório: {}", zipPath);
-            return FileUtils.unzipFile(zipPath);
+            InMemorySourceTree.Builder builder = InMemorySourceTree.builder(memoryBytes, maxMemoryBytes);
+            log.debug("Extraindo repositório em streaming para memória: {}", builder.root());
+            int extracted;
+            try (InputStream in = DataBufferUtils.subscriberInputStream(archive, ARCHIVE_PREFETCH)) {
+                extracted = FileUtils.readZipStream(in, FileUtils::isAnalysisSource, (name, content) -> {
+                    Path target = builder.root().resolve(name).normalize();
+                    if (!target.startsWith(builder.root())) {
+                        throw new IOException("Entrada fora do diretório de destino: " + name);
+                    }
+                    builder.add(builder.root().relativize(target).toString(), content.readAllBytes());
+                });
+            } catch (IOException | RuntimeException e) {
+                // Extração incompleta: devolve ao orçamento compartilhado o que já tinha sido reservado
+                builder.discard();
+                throw e;
+            }
+            SourceTree tree = builder.build();
+            extractedFiles.increment(extracted);
+            log.info("Extraídos {} arquivos relevantes para análise ({} bytes em memória)", extracted,
+                    tree.sizeInBytes());
+            return tree;
         }).subscribeOn(Schedulers.boundedElastic());
     }
 }
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Filtro barato sobre os bytes crus do arquivo, aplicado antes do parse completo na montagem do índice.
+ * Descarta arquivos que não podem declarar endpoints: sem anotação de controller ou sem anotação de
+ * mapeamento/autorização.
+ */
+public final class SourcePrefilter {
+
+    private static final byte[] CONTROLLER_MARKER = bytes("Controller");
+    private static final byte[] MAPPING_MARKER = bytes("Mapping");
+    private static final byte[] AUTHORIZE_MARKER = bytes("PreAuthorize");
+
+    private static final SourcePrefilter CONTROLLERS_ONLY = new SourcePrefilter();
+
+    private SourcePrefilter() {
+    }
+
+    public static SourcePrefilter controllersOnly() {
+        return CONTROLLERS_ONLY;
+    }
+
+    public boolean isCandidate(ByteBuffer content) {
+        return contains(content, CONTROLLER_MARKER)
+                && (contains(content, MAPPING_MARKER) || contains(content, AUTHORIZE_MARKER));
+    }
+
+    static boolean contains(ByteBuffer content, byte[] needle) {
+        if (needle.length == 0) {
+            return true;
+        }
+        int start = content.position();
+        int last = content.limit() - needle.length;
+        byte first = needle[0];
+
+        for (int i = start; i <= last; i++) {
+            if (content.get(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && content.get(i + j) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
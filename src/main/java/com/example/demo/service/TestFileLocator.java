@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.snapshot.SourceTree;
 import com.example.demo.util.DirectoryFinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,10 +20,10 @@ public class TestFileLocator {
     @Value("${default.test.path}")
     private String defaultTestPath;
 
-    public Mono<String> findTestDirectory(String projectRoot) {
+    public Mono<String> findTestDirectory(SourceTree sources, String projectRoot) {
         return Mono.fromCallable(() -> {
             // Utiliza o DirectoryFinder para localizar o diretório de testes
-            Optional<String> testDirOpt = DirectoryFinder.findTestDirectory(projectRoot);
+            Optional<String> testDirOpt = DirectoryFinder.findTestDirectory(sources, projectRoot);
 
             if (testDirOpt.isPresent()) {
                 return testDirOpt.get();
@@ -32,21 +33,21 @@ public class TestFileLocator {
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
-    public Mono<Optional<Path>> findTestForClass(Path originalClassPath, String className) {
+    public Mono<Optional<Path>> findTestForClass(SourceTree sources, Path originalClassPath, String className) {
         String projectRoot = DirectoryFinder.extractProjectRoot(originalClassPath);
         log.debug("Project root identificado: {}", projectRoot);
 
-        return findTestDirectory(projectRoot)
-                .flatMap(testDir -> checkTestClassExists(testDir, className));
+        return findTestDirectory(sources, projectRoot)
+                .flatMap(testDir -> checkTestClassExists(sources, testDir, className));
     }
 
-    private Mono<Optional<Path>> checkTestClassExists(String testDir, String className) {
+    private Mono<Optional<Path>> checkTestClassExists(SourceTree sources, String testDir, String className) {
         return Mono.fromCallable(() -> {
             log.debug("Procurando classe de teste para: {}", className);
 
             String projectRoot = DirectoryFinder.extractProjectRoot(Paths.get(testDir));
 
-            Optional<Path> testClassPath = DirectoryFinder.findTestClass(projectRoot, className);
+            Optional<Path> testClassPath = DirectoryFinder.findTestClass(sources, projectRoot, className);
 
             if (testClassPath.isPresent()) {
                 log.info("Classe de teste encontrada: {}", testClassPath.get());
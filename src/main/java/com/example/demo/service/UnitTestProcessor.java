@@ -1,14 +1,12 @@
 package com.example.demo.service;
 
 import com.example.demo.client.S3UploadClient;
-import com.example.demo.client.StackspotClient;
-import com.example.demo.dto.ApiResponse;
+import com.example.demo.dto.ChatPlan;
 import com.example.demo.dto.ControllerMatch;
-import com.example.demo.util.JsonUtils;
+import com.example.demo.snapshot.SourceTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
@@ -24,21 +22,18 @@ public class UnitTestProcessor {
     @Value("${chat.endpoint.test}")
     private String chatEndpointTestUnit;
 
-    private final StackspotClient stackspotClient;
     private final S3UploadClient s3UploadClient;
     private final TestFileLocator testFileLocator;
 
-    public UnitTestProcessor(StackspotClient stackspotClient, S3UploadClient s3UploadClient,
-            TestFileLocator testFileLocator) {
-        this.stackspotClient = stackspotClient;
+    public UnitTestProcessor(S3UploadClient s3UploadClient, TestFileLocator testFileLocator) {
         this.s3UploadClient = s3UploadClient;
         this.testFileLocator = testFileLocator;
     }
 
-    public Mono<ResponseEntity<ApiResponse>> processUnitTest(ControllerMatch match, String scope, String path) {
+    public Mono<ChatPlan> processUnitTest(SourceTree sources, ControllerMatch match, String scope, String path) {
         if (match == null) {
             log.info("Nenhuma classe com scope encontrada para criar teste unitário");
-            return createNewUnitTest(scope, path, "UnknownClass", null);
+            return Mono.just(createNewUnitTest(sources, scope, path, "UnknownClass", null));
         }
 
         String className = match.className().replace(".java", "");
@@ -46,33 +41,37 @@ public class UnitTestProcessor {
         Path originalClassPath = match.filePath();
 
         // Obter a pasta raiz e localizar o teste correspondente
-        return testFileLocator.findTestForClass(originalClassPath, className)
-                .flatMap(testClassPath -> {
+        return testFileLocator.findTestForClass(sources, originalClassPath, className)
+                .map(testClassPath -> {
                     if (testClassPath.isPresent()) {
                         log.info("Classe de teste encontrada: {}", testClassPath.get());
-                        return processExistingTestClass(testClassPath.get(), originalClassPath, scope, path);
+                        return processExistingTestClass(sources, testClassPath.get(), originalClassPath, scope,
+                                path);
                     } else {
                         log.info("Classe de teste não encontrada, criando teste para: {}", className);
-                        return createNewUnitTest(scope, path, className, originalClassPath);
+                        return createNewUnitTest(sources, scope, path, className, originalClassPath);
                     }
                 });
     }
 
-    private Mono<ResponseEntity<ApiResponse>> processExistingTestClass(Path testClassPath, Path originalClassPath,
+    private ChatPlan processExistingTestClass(SourceTree sources, Path testClassPath, Path originalClassPath,
             String scope, String path) {
-        return stackspotClient.getAccessToken()
-                .flatMap(token -> {
+        return ChatPlan.chat(
+                "Classe de teste encontrada: " + testClassPath.getFileName(),
+                chatEndpointTestUnit,
+                "scope: " + scope + ", path: " + path + " - Gerar teste unitário",
+                token -> {
                     // Upload da classe de teste
-                    Mono<String> testClassUpload = s3UploadClient.uploadFileToEndpoint(testClassPath, token);
+                    Mono<String> testClassUpload = s3UploadClient.uploadFileToEndpoint(sources, testClassPath, token);
 
                     // Upload da classe Java original
                     Mono<String> originalClassUpload = originalClassPath != null
-                            ? s3UploadClient.uploadFileToEndpoint(originalClassPath, token)
+                            ? s3UploadClient.uploadFileToEndpoint(sources, originalClassPath, token)
                             : Mono.just("no-original-class");
 
                     // Combinar os dois uploads
                     return Mono.zip(testClassUpload, originalClassUpload)
-                            .flatMap(uploads -> {
+                            .map(uploads -> {
                                 String testUploadId = uploads.getT1();
                                 String originalUploadId = uploads.getT2();
 
@@ -85,51 +84,23 @@ public class UnitTestProcessor {
                                 } else {
                                     log.warn("Enviando apenas classe de teste: {}", testClassPath.getFileName());
                                 }
-
-                                return stackspotClient.callChatEndpoint(
-                                        uploadIds,
-                                        "scope: " + scope + ", path: " + path + " - Gerar teste unitário",
-                                        token, chatEndpointTestUnit)
-                                        .map(response -> ResponseEntity
-                                                .ok(new ApiResponse(JsonUtils.extractMessage(response))));
+                                return uploadIds;
                             });
-                })
-                .onErrorResume(error -> {
-                    log.error("Erro no processamento da classe de teste existente: {}", error.getMessage());
-                    return Mono.just(ResponseEntity.internalServerError()
-                            .body(new ApiResponse("Erro no processamento da classe de teste: " + error.getMessage())));
-                });
+                },
+                "Erro no processamento da classe de teste: ");
     }
 
-    private Mono<ResponseEntity<ApiResponse>> createNewUnitTest(String scope, String path, String className,
+    private ChatPlan createNewUnitTest(SourceTree sources, String scope, String path, String className,
             Path originalClassPath) {
-        return stackspotClient.getAccessToken()
-                .flatMap(token -> {
-                    // Se temos uma classe original, fazemos o upload
-                    if (originalClassPath != null) {
-                        return s3UploadClient.uploadFileToEndpoint(originalClassPath, token)
-                                .flatMap(uploadId -> stackspotClient.callChatEndpoint(
-                                        Collections.singletonList(uploadId),
-                                        "scope: " + scope + ", path: " + path + ", className: " + className
-                                                + " - Criar novo teste unitário",
-                                        token, chatEndpointTestUnit)
-                                        .map(response -> ResponseEntity
-                                                .ok(new ApiResponse(JsonUtils.extractMessage(response)))));
-                    } else {
-                        // Sem classe original, apenas chamamos a API
-                        return stackspotClient.callChatEndpoint(
-                                Collections.emptyList(),
-                                "scope: " + scope + ", path: " + path + ", className: " + className
-                                        + " - Criar novo teste unitário",
-                                token, chatEndpointTestUnit)
-                                .map(response -> ResponseEntity
-                                        .ok(new ApiResponse(JsonUtils.extractMessage(response))));
-                    }
-                })
-                .onErrorResume(error -> {
-                    log.error("Erro na criação de novo teste unitário: {}", error.getMessage());
-                    return Mono.just(ResponseEntity.internalServerError()
-                            .body(new ApiResponse("Erro na criação do teste: " + error.getMessage())));
-                });
+        String prompt = "scope: " + scope + ", path: " + path + ", className: " + className
+                + " - Criar novo teste unitário";
+        // Se temos uma classe original, fazemos o upload; sem ela, apenas chamamos a API
+        return originalClassPath != null
+                ? ChatPlan.chat("Criando novo teste para " + className, chatEndpointTestUnit, prompt,
+                        token -> s3UploadClient.uploadFileToEndpoint(sources, originalClassPath, token)
+                                .map(Collections::singletonList),
+                        "Erro na criação do teste: ")
+                : ChatPlan.chat("Criando novo teste para " + className, chatEndpointTestUnit, prompt,
+                        "Erro na criação do teste: ");
     }
 }
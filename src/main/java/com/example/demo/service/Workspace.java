@@ -0,0 +1,31 @@
+package com.example.demo.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class Workspace {
+
+    private final Path root;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    Workspace(Path root) {
+        this.root = root;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    long addUsage(long bytes) {
+        return usedBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
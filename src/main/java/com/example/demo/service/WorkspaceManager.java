@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class WorkspaceManager {
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceManager.class);
+
+    private final Path baseDir;
+    private final long maxDiskBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    public WorkspaceManager(@Value("${workspace.base-dir}") String baseDir,
+            @Value("${workspace.max-disk-bytes}") long maxDiskBytes) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    public Mono<Workspace> acquire() {
+        return Mono.fromCallable(() -> {
+            if (usedBytes.get() >= maxDiskBytes) {
+                throw new IllegalStateException("Cota de disco dos workspaces esgotada (" + maxDiskBytes + " bytes)");
+            }
+            Files.createDirectories(baseDir);
+            Workspace workspace = new Workspace(Files.createTempDirectory(baseDir, "analysis-"));
+            log.debug("Workspace criado: {}", workspace);
+            return workspace;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Contabiliza bytes prestes a serem gravados no workspace, falhando assim que a cota global de disco é
+     * ultrapassada.
+     */
+    public void recordUsage(Workspace workspace, long bytes) {
+        workspace.addUsage(bytes);
+        long total = usedBytes.addAndGet(bytes);
+        if (total > maxDiskBytes) {
+            throw new IllegalStateException("Cota de disco dos workspaces excedida: " + total + " de "
+                    + maxDiskBytes + " bytes");
+        }
+    }
+
+    /**
+     * Remove o workspace em segundo plano, fora do caminho da resposta.
+     */
+    public void release(Workspace workspace) {
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                FileUtils.deleteDirectory(workspace.root().toFile());
+                log.debug("Workspace removido: {}", workspace);
+            } catch (Exception e) {
+                log.warn("Erro ao remover workspace {}: {}", workspace, e.getMessage());
+            } finally {
+                usedBytes.addAndGet(-workspace.usedBytes());
+            }
+        });
+    }
+
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+public final class FileSystemSourceTree implements SourceTree {
+
+    private static final long MAPPING_THRESHOLD = 64 * 1024; // 64KB
+
+    private final Path root;
+    private final long sizeInBytes;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public FileSystemSourceTree(Path root, long sizeInBytes, Runnable onClose) {
+        this.root = root;
+        this.sizeInBytes = sizeInBytes;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public Path root() {
+        return root;
+    }
+
+    @Override
+    public boolean isDirectory(Path dir) {
+        return Files.isDirectory(dir);
+    }
+
+    @Override
+    public Stream<Path> walk(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return Stream.empty();
+        }
+        return Files.walk(dir).filter(Files::isRegularFile);
+    }
+
+    /**
+     * Arquivos grandes são mapeados em memória em vez de copiados para o heap.
+     */
+    @Override
+    public ByteBuffer content(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPING_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // lê até preencher o buffer
+            }
+            return content.flip();
+        }
+    }
+
+    @Override
+    public byte[] readAllBytes(Path file) throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot mantido inteiramente em memória. O conteúdo dos arquivos fica em slabs de ByteBuffers diretos
+ * (fora do heap), indexados pelo caminho relativo à raiz virtual do snapshot.
+ * <p>
+ * O limite de memória é um orçamento compartilhado pelas árvores criadas com o mesmo contador: cada arquivo
+ * reserva seus bytes ao ser adicionado e {@link #close()} devolve a reserva. O JDK não libera um buffer direto
+ * sob demanda, então os slabs voltam ao sistema quando o GC os coleta; até lá o teto físico é o
+ * {@code -XX:MaxDirectMemorySize} da JVM.
+ */
+public final class InMemorySourceTree implements SourceTree {
+
+    private static final int SLAB_SIZE = 1024 * 1024; // 1MB
+
+    private final Path root;
+    private volatile NavigableMap<String, ByteBuffer> files;
+    private final long sizeInBytes;
+    private final AtomicLong usedBytes;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private InMemorySourceTree(Path root, NavigableMap<String, ByteBuffer> files, long sizeInBytes,
+            AtomicLong usedBytes) {
+        this.root = root;
+        this.files = files;
+        this.sizeInBytes = sizeInBytes;
+        this.usedBytes = usedBytes;
+    }
+
+    public static Builder builder(long maxBytes) {
+        return builder(new AtomicLong(), maxBytes);
+    }
+
+    /**
+     * Builder que reserva o conteúdo em {@code usedBytes}, somado entre todas as árvores abertas com o mesmo
+     * contador, falhando quando o total passaria de {@code maxBytes}.
+     */
+    public static Builder builder(AtomicLong usedBytes, long maxBytes) {
+        return new Builder(usedBytes, maxBytes);
+    }
+
+    @Override
+    public Path root() {
+        return root;
+    }
+
+    @Override
+    public boolean isDirectory(Path dir) {
+        String prefix = directoryPrefix(dir);
+        if (prefix == null) {
+            return false;
+        }
+        if (prefix.isEmpty()) {
+            return !files.isEmpty();
+        }
+        String candidate = files.ceilingKey(prefix);
+        return candidate != null && candidate.startsWith(prefix);
+    }
+
+    @Override
+    public Stream<Path> walk(Path dir) {
+        String prefix = directoryPrefix(dir);
+        if (prefix == null) {
+            return Stream.empty();
+        }
+        NavigableMap<String, ByteBuffer> entries = prefix.isEmpty()
+                ? files
+                : files.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        return entries.keySet().stream().map(root::resolve);
+    }
+
+    @Override
+    public ByteBuffer content(Path file) throws IOException {
+        ByteBuffer content = files.get(relativeKey(file));
+        if (content == null) {
+            throw new NoSuchFileException(file.toString());
+        }
+        return content.asReadOnlyBuffer();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // Os buffers diretos são devolvidos ao sistema quando deixam de ser referenciados
+            files = Collections.emptyNavigableMap();
+            usedBytes.addAndGet(-sizeInBytes);
+        }
+    }
+
+    private String directoryPrefix(Path dir) {
+        String key = relativeKey(dir);
+        if (key == null) {
+            return null;
+        }
+        return key.isEmpty() ? key : key + "/";
+    }
+
+    private String relativeKey(Path path) {
+        Path normalized = path.normalize();
+        if (!normalized.startsWith(root)) {
+            return null;
+        }
+        return root.relativize(normalized).toString().replace('\\', '/');
+    }
+
+    public static final class Builder {
+
+        private final AtomicLong usedBytes;
+        private final long maxBytes;
+        private final Path root = Paths.get("/memory", UUID.randomUUID().toString());
+        private final TreeMap<String, ByteBuffer> files = new TreeMap<>();
+        private ByteBuffer slab = ByteBuffer.allocateDirect(0);
+        private long sizeInBytes;
+
+        private Builder(AtomicLong usedBytes, long maxBytes) {
+            this.usedBytes = usedBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        public Path root() {
+            return root;
+        }
+
+        public Builder add(String relativePath, byte[] content) {
+            long total = usedBytes.addAndGet(content.length);
+            if (total > maxBytes) {
+                usedBytes.addAndGet(-content.length);
+                throw new IllegalStateException("Limite de memória dos snapshots excedido: " + total + " de "
+                        + maxBytes + " bytes");
+            }
+            sizeInBytes += content.length;
+            if (slab.remaining() < content.length) {
+                slab = ByteBuffer.allocateDirect(Math.max(SLAB_SIZE, content.length));
+            }
+            ByteBuffer slice = slab.slice(slab.position(), content.length);
+            slice.put(content).flip();
+            slab.position(slab.position() + content.length);
+
+            files.put(relativePath.replace('\\', '/'), slice);
+            return this;
+        }
+
+        public InMemorySourceTree build() {
+            return new InMemorySourceTree(root, Collections.unmodifiableNavigableMap(files), sizeInBytes,
+                    usedBytes);
+        }
+
+        /**
+         * Devolve a reserva de uma extração que não chegou a {@link #build()}.
+         */
+        public void discard() {
+            files.clear();
+            usedBytes.addAndGet(-sizeInBytes);
+            sizeInBytes = 0;
+        }
+    }
+}
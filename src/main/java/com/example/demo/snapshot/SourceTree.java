@@ -0,0 +1,44 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Visão somente leitura das fontes de um snapshot do repositório, independente de onde elas estão
+ * armazenadas (disco ou memória). {@link #close()} devolve os recursos do snapshot.
+ */
+public interface SourceTree extends AutoCloseable {
+
+    Path root();
+
+    boolean isDirectory(Path dir);
+
+    /**
+     * Arquivos regulares abaixo do diretório, em qualquer profundidade.
+     */
+    Stream<Path> walk(Path dir) throws IOException;
+
+    ByteBuffer content(Path file) throws IOException;
+
+    default byte[] readAllBytes(Path file) throws IOException {
+        ByteBuffer content = content(file);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+
+    default String readString(Path file) throws IOException {
+        return new String(readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Total de bytes de conteúdo mantidos pelo snapshot.
+     */
+    long sizeInBytes();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,38 @@
+package com.example.demo.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class ContentHash {
+
+    private ContentHash() {
+        // Utility class
+    }
+
+    /**
+     * SHA-1 no formato de blob do git ({@code "blob <tamanho>\0" + conteúdo}), o mesmo id que o git atribui
+     * ao arquivo. Não altera a posição do buffer.
+     */
+    public static String gitBlobSha1(ByteBuffer content) {
+        MessageDigest digest = sha1();
+        ByteBuffer data = content.duplicate();
+        digest.update(("blob " + data.remaining() + "\0").getBytes(StandardCharsets.US_ASCII));
+        digest.update(data);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha1Hex(String value) {
+        return HexFormat.of().formatHex(sha1().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 indisponível", e);
+        }
+    }
+}
@@ -4,9 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.example.demo.enums.DirectoryType;
+import com.example.demo.snapshot.SourceTree;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
@@ -29,7 +29,7 @@ public final class DirectoryFinder {
             "src/test"
     };
 
-    private static Optional<String> findDirectory(String baseDir, DirectoryType type) {
+    private static Optional<String> findDirectory(SourceTree sources, String baseDir, DirectoryType type) {
         Path basePath = Paths.get(baseDir);
 
         String[] possiblePaths = switch (type) {
@@ -45,7 +45,7 @@ public final class DirectoryFinder {
 
         for (String possiblePath : possiblePaths) {
             Path fullPath = basePath.resolve(possiblePath);
-            if (Files.exists(fullPath) && Files.isDirectory(fullPath)) {
+            if (sources.isDirectory(fullPath)) {
                 log.debug("Encontrado diretório de {}: {}", type.getDescription(), fullPath);
                 return Optional.of(fullPath.toString());
             }
@@ -55,26 +55,25 @@ public final class DirectoryFinder {
         return Optional.empty();
     }
 
-    public static String findControllersDirectory(String extractDir) {
-        return findDirectory(extractDir, DirectoryType.CONTROLLER)
+    public static String findControllersDirectory(SourceTree sources, String extractDir) {
+        return findDirectory(sources, extractDir, DirectoryType.CONTROLLER)
                 .orElse(extractDir); 
     }
 
-    public static Optional<String> findTestDirectory(String projectRoot) {
-        return findDirectory(projectRoot, DirectoryType.TEST);
+    public static Optional<String> findTestDirectory(SourceTree sources, String projectRoot) {
+        return findDirectory(sources, projectRoot, DirectoryType.TEST);
     }
 
-    public static Optional<Path> findFileInDirectory(String directory, String fileName) {
+    public static Optional<Path> findFileInDirectory(SourceTree sources, String directory, String fileName) {
         Path dirPath = Paths.get(directory);
         log.debug("Procurando arquivo '{}' em: {}", fileName, directory);
 
-        if (!isValidDirectory(dirPath)) {
+        if (!isValidDirectory(sources, dirPath)) {
             return Optional.empty();
         }
 
-        try (Stream<Path> paths = Files.walk(dirPath)) {
+        try (Stream<Path> paths = sources.walk(dirPath)) {
             Optional<Path> foundFile = paths
-                    .filter(Files::isRegularFile)
                     .filter(p -> p.getFileName().toString().equals(fileName))
                     .findFirst();
 
@@ -86,7 +85,7 @@ public final class DirectoryFinder {
         }
     }
 
-    public static Optional<Path> findTestClass(String projectRoot, String originalClassName) {
+    public static Optional<Path> findTestClass(SourceTree sources, String projectRoot, String originalClassName) {
         // Remove a extensão .java se presente
         if (originalClassName.endsWith(".java")) {
             originalClassName = originalClassName.substring(0, originalClassName.length() - 5);
@@ -94,17 +93,17 @@ public final class DirectoryFinder {
 
         String testClassName = originalClassName + "Test.java";
 
-        Optional<String> testDir = findTestDirectory(projectRoot);
+        Optional<String> testDir = findTestDirectory(sources, projectRoot);
         if (testDir.isPresent()) {
-            return findFileInDirectory(testDir.get(), testClassName);
+            return findFileInDirectory(sources, testDir.get(), testClassName);
         }
 
         return Optional.empty();
     }
 
 
-    private static boolean isValidDirectory(Path dirPath) {
-        if (!Files.exists(dirPath) || !Files.isDirectory(dirPath)) {
+    private static boolean isValidDirectory(SourceTree sources, Path dirPath) {
+        if (!sources.isDirectory(dirPath)) {
             log.debug("Diretório não existe ou não é um diretório válido: {}", dirPath);
             return false;
         }
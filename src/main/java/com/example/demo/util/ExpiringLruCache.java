@@ -0,0 +1,86 @@
+package com.example.demo.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache LRU limitado em número de entradas, em que cada entrada expira um tempo fixo após ser gravada.
+ * Entradas expiradas são descartadas na leitura. Todas as operações são sincronizadas.
+ */
+public final class ExpiringLruCache<K, V> {
+
+    private record Expiring<V>(V value, Instant expiresAt) {
+    }
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<K, Expiring<V>> entries;
+
+    public ExpiringLruCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    public ExpiringLruCache(int maxEntries, Duration ttl, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries deve ser positivo: " + maxEntries);
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Expiring<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Expiring<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!clock.instant().isBefore(entry.expiresAt())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Expiring<>(value, clock.instant().plus(ttl)));
+    }
+
+    /**
+     * Valor atual da chave ou, se ausente ou expirado, o calculado por {@code loader} (gravado com um novo
+     * prazo). O loader roda sob o lock do cache e deve ser barato.
+     */
+    public synchronized V computeIfAbsent(K key, Function<K, V> loader) {
+        V current = get(key);
+        if (current != null) {
+            return current;
+        }
+        V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Remove a entrada apenas se ela ainda guardar {@code value}.
+     */
+    public synchronized boolean remove(K key, V value) {
+        Expiring<V> entry = entries.get(key);
+        if (entry != null && entry.value().equals(value)) {
+            entries.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -2,38 +2,83 @@ package com.example.demo.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public final class FileUtils {
 
+    private static final Set<String> BUILD_FILES = Set.of(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts");
+
+    // Trecho copiado de cada entrada entre duas contabilizações de bytes
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private FileUtils() {
         // Utility class
     }
 
-    public static String unzipFile(String zipPath) throws IOException {
-        String destDir = "repo";
-        try (var zis = new ZipInputStream(Files.newInputStream(Paths.get(zipPath)))) {
+    /**
+     * Extrai as entradas de um ZIP lido sequencialmente (ex.: direto da rede), gravando apenas as que
+     * satisfazem o filtro. O callback recebe o tamanho de cada trecho antes de ele ser gravado e pode
+     * interromper a extração lançando uma exceção, sem esperar o fim de uma entrada grande. Retorna a
+     * quantidade de arquivos gravados.
+     */
+    public static int unzipStream(InputStream in, String destDir, Predicate<String> entryFilter,
+            LongConsumer onBytesWritten) throws IOException {
+        Path destPath = Paths.get(destDir).toAbsolutePath().normalize();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        return readZipStream(in, entryFilter, (name, content) -> {
+            Path target = destPath.resolve(name).normalize();
+            if (!target.startsWith(destPath)) {
+                throw new IOException("Entrada fora do diretório de destino: " + name);
+            }
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = Files.newOutputStream(target)) {
+                int read;
+                while ((read = content.read(buffer)) > 0) {
+                    onBytesWritten.accept(read);
+                    out.write(buffer, 0, read);
+                }
+            }
+        });
+    }
+
+    /**
+     * Percorre sequencialmente as entradas de arquivo de um ZIP, entregando ao handler apenas as que
+     * satisfazem o filtro. Retorna a quantidade de entradas entregues.
+     */
+    public static int readZipStream(InputStream in, Predicate<String> entryFilter, ZipEntryHandler handler)
+            throws IOException {
+        int handled = 0;
+
+        try (var zis = new ZipInputStream(in)) {
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
-                File newFile = new File(destDir, entry.getName());
-                if (entry.isDirectory()) {
-                    newFile.mkdirs();
-                } else {
-                    File parent = new File(newFile.getParent());
-                    if (!parent.exists()) {
-                        parent.mkdirs();
-                    }
-                    Files.copy(zis, newFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                if (!entry.isDirectory() && entryFilter.test(entry.getName())) {
+                    handler.handle(entry.getName(), zis);
+                    handled++;
                 }
                 zis.closeEntry();
             }
         }
-        return destDir;
+        return handled;
+    }
+
+    public static boolean isAnalysisSource(String entryName) {
+        if (entryName.endsWith(".java")) {
+            return true;
+        }
+        int lastSlash = entryName.lastIndexOf('/');
+        return BUILD_FILES.contains(entryName.substring(lastSlash + 1));
     }
 
     public static void deleteDirectory(File file) {
@@ -48,11 +93,8 @@ public final class FileUtils {
         file.delete();
     }
 
-    public static void deleteDirectoryQuietly(Path path) {
-        try {
-            Files.deleteIfExists(path);
-        } catch (IOException ignored) {
-            // Ignore deletion errors
-        }
+    @FunctionalInterface
+    public interface ZipEntryHandler {
+        void handle(String entryName, InputStream content) throws IOException;
     }
 }
@@ -0,0 +1,51 @@
+package com.example.demo.util;
+
+import io.micrometer.core.instrument.Counter;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa trabalhos idênticos em andamento: enquanto o trabalho de uma chave não termina, novos chamadores
+ * recebem o mesmo {@link Mono} em vez de iniciar outro. Ao terminar (com sucesso ou erro) a chave é liberada
+ * e o próximo chamador inicia um trabalho novo; nada fica em cache depois disso.
+ */
+public final class InFlightRequests<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public InFlightRequests(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public Mono<V> join(K key, Supplier<Mono<V>> work) {
+        return Mono.defer(() -> {
+            while (true) {
+                Mono<V> current = inFlight.get(key);
+                if (current != null) {
+                    coalesced.increment();
+                    return current;
+                }
+                Holder<V> holder = new Holder<>();
+                // Liberado antes de entregar o resultado, para que chamadores seguintes não o reutilizem
+                holder.shared = Mono.defer(work)
+                        .doOnTerminate(() -> inFlight.remove(key, holder.shared))
+                        .cache();
+                if (inFlight.putIfAbsent(key, holder.shared) == null) {
+                    return holder.shared;
+                }
+            }
+        });
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static final class Holder<V> {
+        private Mono<V> shared;
+    }
+}
@@ -16,4 +16,18 @@ public final class JsonUtils {
             return json;
         }
     }
+
+    /**
+     * Trecho de uma resposta em streaming: o campo "message" do evento, vazio quando o evento não traz texto
+     * (metadados finais, por exemplo). Conteúdo que não é JSON é devolvido como está.
+     */
+    public static String extractChunk(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            // optString devolveria "null" para um JSON null
+            return obj.isNull("message") ? "" : obj.optString("message", "");
+        } catch (Exception e) {
+            return json;
+        }
+    }
 }
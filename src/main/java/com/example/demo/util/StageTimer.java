@@ -0,0 +1,69 @@
+package com.example.demo.util;
+
+import com.example.demo.enums.TypeAction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Duração de cada etapa do pipeline de análise ({@code analysis.stage.duration}), com as tags {@code stage},
+ * {@code type} e {@code outcome}. A medição começa na assinatura e termina no sucesso, erro ou cancelamento.
+ * O {@code type} vem do cliente, então só os valores conhecidos viram tag; os demais são {@code other}.
+ */
+public final class StageTimer {
+
+    public static final String METRIC = "analysis.stage.duration";
+    public static final String DIRECT = "direct";
+    // Etapas compartilhadas por todos os itens de um lote (snapshot e índice)
+    public static final String BATCH = "batch";
+
+    private final MeterRegistry meterRegistry;
+
+    public StageTimer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> time(String stage, String type, Mono<T> work) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return work.doOnSuccess(value -> sample.stop(timer(stage, type, "success")))
+                    .doOnError(error -> sample.stop(timer(stage, type, "error")))
+                    .doOnCancel(() -> sample.stop(timer(stage, type, "cancelled")));
+        });
+    }
+
+    public <T> Flux<T> time(String stage, String type, Flux<T> work) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return work.doOnComplete(() -> sample.stop(timer(stage, type, "success")))
+                    .doOnError(error -> sample.stop(timer(stage, type, "error")))
+                    .doOnCancel(() -> sample.stop(timer(stage, type, "cancelled")));
+        });
+    }
+
+    private static String typeTag(String type) {
+        if (type == null) {
+            return DIRECT;
+        }
+        if (DIRECT.equals(type) || BATCH.equals(type)) {
+            return type;
+        }
+        try {
+            return TypeAction.valueOf(type.toUpperCase(Locale.ROOT)).name().toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "other";
+        }
+    }
+
+    private Timer timer(String stage, String type, String outcome) {
+        return Timer.builder(METRIC)
+                .description("Duração de cada etapa do pipeline de análise")
+                .tag("stage", stage)
+                .tag("type", typeTag(type))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.demo.analysis;
+
+import com.example.demo.dto.ControllerMatch;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.service.JavaSourceAnalyzer;
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisEngineParityTest {
+
+    private static final String CONTROLLER_DIR = "repo-main/src/main/java/com/example/controller/";
+
+    private static final Map<String, String> SOURCES = Map.of(
+            "PingController.java", """
+                    package com.example.controller;
+
+                    @RestController
+                    @RequestMapping("/ping")
+                    public class PingController {
+
+                        @Autowired
+                        private PingService service = PingService.create();
+
+                        // @GetMapping("/commented")
+                        @GetMapping("/scope")
+                        @PreAuthorize("#oauth2.hasScope('ping')")
+                        public ResponseEntity<String> ping() {
+                            return ResponseEntity.ok("pong");
+                        }
+
+                        @PostMapping(path = "/create", consumes = "application/json")
+                        @PreAuthorize("oauth2.hasScope('write') and hasRole('ADMIN')")
+                        public ResponseEntity<Void> create(@RequestBody Ping ping, @PathVariable("id") String id) {
+                            String text = "@GetMapping(\\"/fake\\")";
+                            return ResponseEntity.ok().build();
+                        }
+                    }
+                    """,
+            "UserController.java", """
+                    package com.example.controller;
+
+                    @Controller
+                    public class UserController {
+
+                        /* @PreAuthorize("#oauth2.hasScope('hidden')") */
+                        @RequestMapping(value = "/users", method = RequestMethod.GET)
+                        @PreAuthorize("#oauth2.hasScope('users')")
+                        public String list(Model model) {
+                            Runnable task = new Runnable() {
+                                @Override
+                                public void run() {
+                                }
+                            };
+                            return "users";
+                        }
+
+                        @GetMapping(value = {"/users/{id}", "/members/{id}"})
+                        public String get(@PathVariable Long id) {
+                            char quote = '"';
+                            return "user";
+                        }
+                    }
+                    """,
+            "ApiContract.java", """
+                    package com.example.controller;
+
+                    @RestController
+                    public interface ApiContract {
+
+                        @GetMapping("/contract")
+                        @PreAuthorize("#oauth2.hasScope('contract')")
+                        String contract();
+                    }
+                    """,
+            "QualifiedController.java", """
+                    package com.example.controller;
+
+                    @org.springframework.web.bind.annotation.RestController
+                    public class QualifiedController {
+
+                        @GetMapping("/qualified")
+                        @PreAuthorize("#oauth2.hasScope('qualified')")
+                        public String qualified() {
+                            return "q";
+                        }
+                    }
+                    """,
+            "ConstantsController.java", """
+                    package com.example.controller;
+
+                    @RestController
+                    public class ConstantsController {
+
+                        private static final String BASE = "/orders";
+                        static final String ITEM = BASE + "/{id}", ADMIN_SCOPE = "orders.admin";
+
+                        @PutMapping(ITEM)
+                        @PreAuthorize("#oauth2.hasAnyScope('orders.write', '" + ADMIN_SCOPE + "')")
+                        public void update() {
+                        }
+
+                        @DeleteMapping(path = {BASE + "/all", ConstantsController.ITEM})
+                        @PreAuthorize(value = "hasRole('ADMIN') or #oauth2.hasScope('orders.delete')")
+                        public void delete() {
+                        }
+
+                        @PatchMapping(produces = "/not-a-path", value = "/orders/{id}/status")
+                        public void patch() {
+                        }
+
+                        @GetMapping("/orders/" + "/legacy")
+                        @PreAuthorize("#oauth2.hasScope('orders.read')")
+                        public void legacy() {
+                        }
+                    }
+                    """,
+            "AccountController.java", """
+                    package com.example.controller;
+
+                    @RestController
+                    @RequestMapping(path = {"/v1/accounts", "/v2/accounts"})
+                    public class AccountController {
+
+                        @GetMapping("/{id}")
+                        @PreAuthorize("#oauth2.hasScope('accounts')")
+                        public Account get(@PathVariable String id) {
+                            return null;
+                        }
+
+                        @PostMapping
+                        public void create() {
+                        }
+                    }
+                    """,
+            "PingRecord.java", """
+                    package com.example.controller;
+
+                    @Schema(description = "Mapping de resposta do Controller")
+                    public record PingRecord(@JsonProperty("/scope") String value) {
+                        @PreAuthorize("#oauth2.hasScope('ping')")
+                        public String describe() {
+                            return value;
+                        }
+                    }
+                    """);
+
+    private static SourceTree sources;
+    private static JavaSourceAnalyzer javaParserAnalyzer;
+    private static JavaSourceAnalyzer scannerAnalyzer;
+    private static RepositoryIndex javaParserIndex;
+    private static RepositoryIndex scannerIndex;
+
+    @BeforeAll
+    static void setUp() {
+        InMemorySourceTree.Builder builder = InMemorySourceTree.builder(Long.MAX_VALUE);
+        SOURCES.forEach((name, source) -> builder.add(CONTROLLER_DIR + name, source.getBytes(StandardCharsets.UTF_8)));
+        sources = builder.build();
+        javaParserAnalyzer = new JavaSourceAnalyzer(AnalysisEngineType.JAVAPARSER, 2, new SimpleMeterRegistry());
+        scannerAnalyzer = new JavaSourceAnalyzer(AnalysisEngineType.SCANNER, 2, new SimpleMeterRegistry());
+        String controllerDir = sources.root().resolve(CONTROLLER_DIR).toString();
+        javaParserIndex = javaParserAnalyzer.buildIndex(sources, controllerDir);
+        scannerIndex = scannerAnalyzer.buildIndex(sources, controllerDir);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        javaParserAnalyzer.shutdown();
+        scannerAnalyzer.shutdown();
+        sources.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ping, /scope",
+            "write, /create",
+            "users, /users",
+            "ping, /users/{id}",
+            "contract, /contract",
+            "qualified, /qualified",
+            "hidden, /commented",
+            "missing, /fake",
+            "'', /members/{id}",
+            "users, ''",
+            "orders.write, /orders/{id}",
+            "orders.admin, /orders/all",
+            "orders.delete, /orders/{id}/status",
+            "orders.read, /not-a-path",
+            "orders, /orders"
+    })
+    void enginesReturnSameMatches(String scope, String path) {
+        assertEquals(javaParserIndex.matches(scope, path), scannerIndex.matches(scope, path));
+    }
+
+    @Test
+    void enginesSummarizeEveryFileAlike() {
+        AnalysisEngine javaParser = new JavaParserEngine();
+        AnalysisEngine scanner = new AnnotationScannerEngine();
+
+        // Arquivos que o JavaParser não consegue analisar (ex.: records) contam como não-controllers
+        for (Map.Entry<String, String> source : SOURCES.entrySet()) {
+            Path file = Path.of(source.getKey());
+            assertEquals(endpoints(javaParser, file, source.getValue()), endpoints(scanner, file, source.getValue()),
+                    source.getKey());
+        }
+    }
+
+    @Test
+    void findsScopeAndPathOnSameController() {
+        List<ControllerMatch> matches = scannerIndex.matches("ping", "/scope");
+
+        assertEquals(1, matches.size());
+        assertEquals("PingController.java", matches.get(0).className());
+        assertTrue(matches.get(0).scopeFound());
+        assertTrue(matches.get(0).pathFound());
+    }
+
+    @Test
+    void ignoresCommentsAndStringContents() {
+        assertTrue(scannerIndex.matches("hidden", "/commented").isEmpty());
+        assertFalse(scannerIndex.matches("users", "/fake").isEmpty());
+        assertTrue(scannerIndex.matches("missing", "/fake").isEmpty());
+    }
+
+    @Test
+    void resolvesConstantsArraysAndAnyScope() {
+        Path file = Path.of("ConstantsController.java");
+        String source = SOURCES.get("ConstantsController.java");
+        List<String> expected = List.of(
+                "update PUT /orders/{id} [orders.write, orders.admin]",
+                "delete DELETE /orders/all [orders.delete]",
+                "delete DELETE /orders/{id} [orders.delete]",
+                "patch PATCH /orders/{id}/status []",
+                "legacy GET /orders//legacy [orders.read]");
+
+        assertEquals(expected, endpoints(new JavaParserEngine(), file, source));
+        assertEquals(expected, endpoints(new AnnotationScannerEngine(), file, source));
+    }
+
+    // Método, verbo, path completo e scopes de cada endpoint do resumo
+    private static List<String> endpoints(AnalysisEngine engine, Path file, String source) {
+        return engine.summarize(file, source).orElse(FileSummary.NOT_CONTROLLER).endpoints().stream()
+                .map(e -> e.methodName() + " " + e.httpMethod() + " " + e.fullPath() + " " + e.scopes())
+                .toList();
+    }
+
+    @Test
+    void enginesBuildSameIndex() {
+        assertEquals(javaParserIndex.endpoints(), scannerIndex.endpoints());
+    }
+
+    @Test
+    void indexCarriesVerbAndFullPath() {
+        Path pingFile = sources.root().resolve(CONTROLLER_DIR + "PingController.java");
+
+        Endpoint ping = scannerIndex.byScope("ping").get(0);
+        assertEquals(new Endpoint(pingFile, "PingController", "ping", "GET", "/scope", "/ping/scope",
+                List.of("ping")), ping);
+        assertEquals("POST", scannerIndex.byPath("/create").get(0).httpMethod());
+        assertEquals("GET", scannerIndex.byPath("/users").get(0).httpMethod());
+        assertEquals(List.of("/members/{id}"), scannerIndex.byPath("/members/{id}").stream()
+                .map(Endpoint::fullPath).toList());
+        assertEquals(List.of("orders.write", "orders.admin"), scannerIndex.byPath("/orders/{id}").get(0).scopes());
+        assertEquals(Optional.of(pingFile), scannerIndex.fileOf("PingController"));
+        assertTrue(scannerIndex.byScope("hidden").isEmpty());
+        assertTrue(scannerIndex.fileOf("PingRecord").isEmpty());
+    }
+
+    @Test
+    void indexMatchesFullPathsAndTemplates() {
+        assertEquals(List.of("PingController.java"), pathMatches("/ping/create"));
+        assertEquals(List.of("UserController.java"), pathMatches("/users/42"));
+        assertEquals(List.of("UserController.java"), pathMatches("users/42"));
+        assertEquals(List.of("ConstantsController.java"), pathMatches("/orders/{orderId}/status"));
+        assertEquals(List.of(), pathMatches("/ping/missing"));
+    }
+
+    @Test
+    void indexCombinesEveryClassPrefixWithEachMethodPath() {
+        for (RepositoryIndex index : List.of(javaParserIndex, scannerIndex)) {
+            assertEquals(List.of("/v1/accounts/{id}", "/v2/accounts/{id}"), index.byPath("/{id}").stream()
+                    .map(Endpoint::fullPath).toList());
+            assertEquals(2, index.byScope("accounts").size());
+            assertEquals(List.of("/v2/accounts"), index.routes().match("POST", "/v2/accounts").stream()
+                    .map(route -> route.endpoint().fullPath()).toList());
+        }
+        assertEquals(List.of("AccountController.java"), pathMatches("/v2/accounts/7"));
+        assertEquals(List.of("AccountController.java"), pathMatches("/v1/accounts/{accountId}"));
+    }
+
+    private static List<String> pathMatches(String path) {
+        return scannerIndex.matches("none", path).stream()
+                .filter(ControllerMatch::pathFound)
+                .map(ControllerMatch::className)
+                .toList();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTrieTest {
+
+    private static Endpoint endpoint(String method, String verb, String prefix, String path) {
+        return new Endpoint(Path.of("UserController.java"), "UserController", method, verb, path,
+                verb != null ? Endpoint.joinPaths(prefix, path) : null, List.of());
+    }
+
+    private static final RouteTrie TRIE = RouteTrie.of(List.of(
+            endpoint("list", "GET", "/users", null),
+            endpoint("get", "GET", "/users", "/{id}"),
+            endpoint("me", "GET", "users/", "me"),
+            endpoint("update", "PUT", "/users", "/{id}"),
+            endpoint("file", "GET", "/files", "/{name}.{ext}"),
+            endpoint("docs", Endpoint.ANY_METHOD, "/docs", "/**"),
+            endpoint("scopeOnly", null, null, null)));
+
+    private static List<String> methods(List<RouteTrie.Route> routes) {
+        return routes.stream().map(r -> r.endpoint().methodName()).toList();
+    }
+
+    @Test
+    void combinesClassPrefixWithMethodPath() {
+        assertEquals(6, TRIE.size());
+        assertEquals(List.of("list"), methods(TRIE.match("GET", "/users")));
+        assertEquals(List.of("me", "get"), methods(TRIE.match("GET", "/users/me")));
+        assertEquals(List.of("get"), methods(TRIE.match("GET", "/users/42")));
+        assertEquals(List.of("update"), methods(TRIE.match("PUT", "/users/42")));
+        assertEquals(List.of("file"), methods(TRIE.match("GET", "/files/report.pdf")));
+        assertTrue(TRIE.match("GET", "/users/42/roles").isEmpty());
+    }
+
+    @Test
+    void matchesRequestPathWithoutLeadingSlash() {
+        assertEquals(List.of("get"), methods(TRIE.match("GET", "users/42")));
+        assertEquals(List.of("file"), methods(TRIE.match("GET", " files/report.pdf ")));
+    }
+
+    @Test
+    void catchAllMatchesAnySuffix() {
+        List<RouteTrie.Route> routes = TRIE.match("POST", "/docs/api/v1/index.html");
+
+        assertEquals(List.of("docs"), methods(routes));
+        assertTrue(routes.get(0).catchAll());
+        assertEquals(List.of("docs"), methods(TRIE.match(null, "/docs")));
+    }
+
+    @Test
+    void findsEquivalentPatternsIgnoringVariableNames() {
+        assertEquals(List.of("get", "update"), methods(TRIE.find("/users/{userId}")));
+        assertEquals(List.of("list"), methods(TRIE.find("users")));
+        assertTrue(TRIE.find("/users/{id}/roles").isEmpty());
+    }
+
+    @Test
+    void reportsOverlapsAndShadowing() {
+        List<RouteTrie.Overlap> overlaps = TRIE.overlapping("GET", "/users/{name}");
+
+        assertEquals(List.of("get", "me"), overlaps.stream()
+                .map(o -> o.route().endpoint().methodName()).sorted().toList());
+        RouteTrie.Overlap me = overlaps.stream()
+                .filter(o -> o.route().endpoint().methodName().equals("me")).findFirst().orElseThrow();
+        RouteTrie.Overlap get = overlaps.stream()
+                .filter(o -> o.route().endpoint().methodName().equals("get")).findFirst().orElseThrow();
+        assertTrue(me.shadows());
+        assertFalse(me.equivalent());
+        assertTrue(get.equivalent());
+        assertFalse(get.shadows());
+
+        assertEquals(List.of("docs"), TRIE.overlapping("DELETE", "/docs/{page}").stream()
+                .map(o -> o.route().endpoint().methodName()).toList());
+        assertTrue(TRIE.overlapping("DELETE", "/users/{id}").isEmpty());
+    }
+}
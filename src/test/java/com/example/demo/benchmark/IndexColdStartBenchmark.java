@@ -0,0 +1,80 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.service.IndexStore;
+import com.example.demo.service.JavaSourceAnalyzer;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.util.FileUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primeira consulta após um restart: índice montado a partir dos fontes versus índice persistido com o
+ * mesmo ETag (basta mapear e decodificar o arquivo).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IndexColdStartBenchmark {
+
+    private static final String REPO_URL = "https://github.com/example/benchmark/archive/main.zip";
+    private static final String ETAG = "\"benchmark\"";
+
+    @Param({ "200", "2000" })
+    int controllers;
+
+    private SourceTree sources;
+    private String controllerDir;
+    private Path storeDir;
+    private IndexStore indexStore;
+    private JavaSourceAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sources = new SyntheticRepository(controllers, 2, 0).sourceTree();
+        controllerDir = sources.root().resolve(SyntheticRepository.CONTROLLER_DIR).toString();
+
+        analyzer = new JavaSourceAnalyzer(AnalysisEngineType.JAVAPARSER, 0, new SimpleMeterRegistry());
+        storeDir = Files.createTempDirectory("index-benchmark-");
+        indexStore = new IndexStore(storeDir.toString());
+        indexStore.save(REPO_URL, ETAG, sources.root(), analyzer.buildIndex(sources, controllerDir));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.shutdown();
+        sources.close();
+        FileUtils.deleteDirectory(storeDir.toFile());
+    }
+
+    @Benchmark
+    public RepositoryIndex withoutPersistedIndex() {
+        return analyzer.buildIndex(sources, controllerDir);
+    }
+
+    @Benchmark
+    public RepositoryIndex withPersistedIndex() {
+        return indexStore.load(REPO_URL).orElseThrow().index().rebase(Path.of(""), sources.root());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.analysis.Endpoint;
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.analysis.RouteTrie;
+import com.example.demo.dto.ControllerMatch;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.service.JavaSourceAnalyzer;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.util.JsonUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operações por consulta e por resposta: busca de scope/path no índice de endpoints de um
+ * {@link SyntheticRepository} (mapas por scope e trie de rotas) e leitura do campo {@code message} da
+ * resposta do agente.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Index {
+
+        @Param({ "100", "1000" })
+        int controllers;
+
+        RepositoryIndex index;
+        String scope;
+        String path;
+        String requestPath;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            JavaSourceAnalyzer analyzer = new JavaSourceAnalyzer(AnalysisEngineType.SCANNER, 0,
+                    new SimpleMeterRegistry());
+            try (SourceTree sources = new SyntheticRepository(controllers, 4, 0).sourceTree()) {
+                index = analyzer.buildIndex(sources,
+                        sources.root().resolve(SyntheticRepository.CONTROLLER_DIR).toString());
+            } finally {
+                analyzer.shutdown();
+            }
+            // Controller do meio do repositório
+            int target = controllers / 2;
+            scope = SyntheticRepository.scope(target, 3);
+            path = SyntheticRepository.path(target, 3);
+            requestPath = SyntheticRepository.itemPath(target).replace("{id}", "42");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Response {
+
+        // Tamanho do campo message da resposta do agente, em caracteres
+        @Param({ "256", "16384" })
+        int messageLength;
+
+        String agentResponse;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            agentResponse = "{\"message\": \"" + "a".repeat(messageLength)
+                    + "\", \"stop_reason\": \"stop\", \"tokens\": {\"input\": 1200, \"output\": 800}}";
+        }
+    }
+
+    @Benchmark
+    public List<ControllerMatch> matchScopeAndPath(Index state) {
+        return state.index.matches(state.scope, state.path);
+    }
+
+    @Benchmark
+    public List<ControllerMatch> matchRequestPath(Index state) {
+        return state.index.matches(state.scope, state.requestPath);
+    }
+
+    @Benchmark
+    public List<Endpoint> byScope(Index state) {
+        return state.index.byScope(state.scope);
+    }
+
+    @Benchmark
+    public List<RouteTrie.Route> routeMatch(Index state) {
+        return state.index.routes().match("GET", state.requestPath);
+    }
+
+    @Benchmark
+    public String extractMessage(Response state) {
+        return JsonUtils.extractMessage(state.agentResponse);
+    }
+}
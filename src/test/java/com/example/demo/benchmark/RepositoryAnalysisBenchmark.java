@@ -0,0 +1,128 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.dto.ControllerMatch;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.service.JavaSourceAnalyzer;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.util.DirectoryFinder;
+import com.example.demo.util.FileUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos quentes de uma análise sobre um repositório sintético ({@link SyntheticRepository}): extração do
+ * zip, montagem do índice de endpoints, busca de scope/path no índice e localização da classe de teste. Rode
+ * com {@code -prof gc} (padrão do profile benchmark) para ver a taxa de alocação junto com o throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryAnalysisBenchmark {
+
+    @Param({ "100", "1000" })
+    int controllers;
+
+    @Param({ "4" })
+    int endpointsPerController;
+
+    @Param({ "20" })
+    int bodyLines;
+
+    private SourceTree sources;
+    private String controllerDir;
+    private String testDir;
+    private String scope;
+    private String path;
+    private String testClass;
+    private byte[] zip;
+    private Path zipFile;
+    private Path extractDir;
+    private JavaSourceAnalyzer analyzer;
+    private RepositoryIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticRepository repository = new SyntheticRepository(controllers, endpointsPerController, bodyLines);
+        sources = repository.sourceTree();
+        controllerDir = sources.root().resolve(SyntheticRepository.CONTROLLER_DIR).toString();
+        testDir = sources.root().resolve(SyntheticRepository.TEST_DIR).toString();
+        // Controller do meio do repositório: a busca não termina cedo
+        int target = controllers / 2;
+        scope = SyntheticRepository.scope(target, endpointsPerController - 1);
+        path = SyntheticRepository.path(target, endpointsPerController - 1);
+        testClass = SyntheticRepository.controllerName(target) + "Test.java";
+
+        zip = repository.zip();
+        zipFile = Files.createTempFile("synthetic-", ".zip");
+        Files.write(zipFile, zip);
+        extractDir = Files.createTempDirectory("synthetic-extract-");
+
+        analyzer = new JavaSourceAnalyzer(AnalysisEngineType.JAVAPARSER, 0, new SimpleMeterRegistry());
+        index = analyzer.buildIndex(sources, controllerDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        analyzer.shutdown();
+        sources.close();
+        Files.deleteIfExists(zipFile);
+        FileUtils.deleteDirectory(extractDir.toFile());
+    }
+
+    @Benchmark
+    public RepositoryIndex buildIndex() {
+        return analyzer.buildIndex(sources, controllerDir);
+    }
+
+    @Benchmark
+    public List<ControllerMatch> matchIndex() {
+        return index.matches(scope, path);
+    }
+
+    @Benchmark
+    public int unzipFile() throws IOException {
+        // Mesmo destino a cada execução: os arquivos são sobrescritos, como numa nova versão do repositório
+        try (InputStream in = Files.newInputStream(zipFile)) {
+            return FileUtils.unzipStream(in, extractDir.toString(), FileUtils::isAnalysisSource, bytes -> {
+            });
+        }
+    }
+
+    @Benchmark
+    public long readZipStreamToMemory() throws IOException {
+        long[] bytes = new long[1];
+        FileUtils.readZipStream(new ByteArrayInputStream(zip), FileUtils::isAnalysisSource,
+                (name, content) -> bytes[0] += content.readAllBytes().length);
+        return bytes[0];
+    }
+
+    @Benchmark
+    public Optional<Path> findFileInDirectory() {
+        return DirectoryFinder.findFileInDirectory(sources, testDir, testClass);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Repositório Spring sintético para os benchmarks: {@code controllers} controllers com
+ * {@code endpointsPerController} endpoints cada mais um GET com variável de path ({@link #itemPath}), um DTO e
+ * uma classe de teste por controller, e
+ * {@code bodyLines} linhas de código comum em cada método (o tamanho típico de um arquivo real). Os nomes
+ * seguem o layout de um zip do GitHub ({@value #ROOT}/...).
+ */
+public final class SyntheticRepository {
+
+    public static final String ROOT = "repo-main";
+    public static final String CONTROLLER_DIR = ROOT + "/src/main/java/com/example/controller";
+    public static final String DTO_DIR = ROOT + "/src/main/java/com/example/dto";
+    public static final String TEST_DIR = ROOT + "/src/test/java/com/example/controller";
+
+    private final int endpointsPerController;
+    private final int bodyLines;
+    private final Map<String, String> files = new LinkedHashMap<>();
+
+    public SyntheticRepository(int controllers, int endpointsPerController, int bodyLines) {
+        this.endpointsPerController = endpointsPerController;
+        this.bodyLines = bodyLines;
+        files.put(ROOT + "/pom.xml", "<project><artifactId>synthetic</artifactId></project>\n");
+        for (int i = 0; i < controllers; i++) {
+            files.put(CONTROLLER_DIR + "/" + controllerName(i) + ".java", controller(i));
+            files.put(DTO_DIR + "/Resource" + i + "Dto.java", dto(i));
+            files.put(TEST_DIR + "/" + controllerName(i) + "Test.java", test(i));
+        }
+        // Arquivos que a extração descarta
+        files.put(ROOT + "/README.md", "# Synthetic\n");
+        files.put(ROOT + "/docs/architecture.txt", "x".repeat(4096));
+    }
+
+    public static String controllerName(int i) {
+        return "Resource" + i + "Controller";
+    }
+
+    public static String scope(int controller, int endpoint) {
+        return "resource" + controller + ".op" + endpoint;
+    }
+
+    // Path único por endpoint: a consulta ao índice encontra um único método
+    public static String path(int controller, int endpoint) {
+        return "/v1/resource" + controller + "-op" + endpoint;
+    }
+
+    // Padrão com variável, atendido por requisições como /v1/resource7/42
+    public static String itemPath(int controller) {
+        return "/v1/resource" + controller + "/{id}";
+    }
+
+    public Map<String, String> files() {
+        return files;
+    }
+
+    public SourceTree sourceTree() {
+        InMemorySourceTree.Builder builder = InMemorySourceTree.builder(Long.MAX_VALUE);
+        files.forEach((name, source) -> builder.add(name, source.getBytes(StandardCharsets.UTF_8)));
+        return builder.build();
+    }
+
+    public byte[] zip() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private String controller(int i) {
+        StringBuilder source = new StringBuilder("""
+                package com.example.controller;
+
+                import com.example.dto.Resource%1$dDto;
+
+                @RestController
+                public class Resource%1$dController {
+
+                    @GetMapping("%2$s")
+                    public ResponseEntity<Resource%1$dDto> find(@PathVariable String id) {
+                        return ResponseEntity.notFound().build();
+                    }
+
+                """.formatted(i, itemPath(i)));
+        for (int e = 0; e < endpointsPerController; e++) {
+            source.append("""
+                        @PostMapping("%s")
+                        @PreAuthorize("#oauth2.hasScope('%s') or #oauth2.hasAnyScope('admin', 'ops')")
+                        public ResponseEntity<Resource%dDto> op%d(@RequestBody Resource%3$dDto body) {
+                    """.formatted(path(i, e), scope(i, e), i, e));
+            appendBody(source);
+            source.append("""
+                            return ResponseEntity.ok(body);
+                        }
+
+                    """);
+        }
+        return source.append("}\n").toString();
+    }
+
+    private String dto(int i) {
+        return """
+                package com.example.dto;
+
+                public record Resource%dDto(String id, String name, long version, java.util.List<String> tags) {
+                }
+                """.formatted(i);
+    }
+
+    private String test(int i) {
+        StringBuilder source = new StringBuilder("""
+                package com.example.controller;
+
+                class Resource%1$dControllerTest {
+
+                    @Test
+                    void returnsBody() {
+                """.formatted(i));
+        appendBody(source);
+        return source.append("""
+                    }
+                }
+                """).toString();
+    }
+
+    private void appendBody(StringBuilder source) {
+        for (int line = 0; line < bodyLines; line++) {
+            source.append("        String value").append(line).append(" = String.valueOf(body.version() + ")
+                    .append(line).append("); // mapeamento e validação\n");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.client;
+
+import com.example.demo.config.HttpTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GithubClientTest {
+
+    private static final String CONFIGURED = "https://github.com/acme/users/archive/refs/heads/main.zip";
+
+    private GithubClient client;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        client = new GithubClient(HttpTestSupport.httpClientFactory(meterRegistry), meterRegistry);
+        ReflectionTestUtils.setField(client, "githubRepoUrl", CONFIGURED);
+        ReflectionTestUtils.setField(client, "allowedHosts", Set.of("github.com"));
+    }
+
+    @Test
+    void resolvesConfiguredRepositoryByDefault() {
+        assertEquals(CONFIGURED, client.resolveArchiveUrl(null, null));
+        assertEquals("https://github.com/acme/users/archive/v1.2.zip", client.resolveArchiveUrl(" ", "v1.2"));
+    }
+
+    @Test
+    void resolvesRepositoryPageAndRef() {
+        assertEquals("https://github.com/acme/orders/archive/HEAD.zip",
+                client.resolveArchiveUrl("https://github.com/acme/orders.git", null));
+        assertEquals("https://github.com/acme/orders/archive/feature/x.zip",
+                client.resolveArchiveUrl("https://GitHub.com/acme/orders/?tab=readme", "feature/x"));
+        assertEquals("https://github.com/acme/orders/archive/refs/tags/v2.zip",
+                client.resolveArchiveUrl("https://github.com/acme/orders/archive/refs/tags/v2.zip", null));
+    }
+
+    @Test
+    void rejectsHostsOutsideAllowListAndInvalidRefs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.resolveArchiveUrl("https://evil.example/acme/orders", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.resolveArchiveUrl("http://github.com/acme/orders", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.resolveArchiveUrl("file:///etc/passwd", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.resolveArchiveUrl("https://github.com/acme/orders", "../../other"));
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.client;
+
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+import com.example.demo.config.HttpClientFactory;
+import com.example.demo.config.HttpTestSupport;
+import com.example.demo.util.ContentHash;
+import com.example.demo.util.ExpiringLruCache;
+import com.example.demo.util.InFlightRequests;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3UploadClientTest {
+
+    private HttpServer server;
+    private final AtomicInteger formRequests = new AtomicInteger();
+    private final AtomicInteger fileUploads = new AtomicInteger();
+    private volatile int uploadStatus = 204;
+    private volatile String lastUpload;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientFactory httpClientFactory;
+    private S3UploadClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        String base = "http://localhost:" + server.getAddress().getPort();
+        server.createContext("/form", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            int id = formRequests.incrementAndGet();
+            respond(exchange, 200, """
+                    {"id": "upload-%d", "url": "%s/s3", "form": {"key": "k", "x-amz-algorithm": "a",
+                    "x-amz-credential": "c", "x-amz-date": "d", "x-amz-security-token": "t", "policy": "p",
+                    "x-amz-signature": "s"}}
+                    """.formatted(id, base));
+        });
+        server.createContext("/s3", exchange -> {
+            lastUpload = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            fileUploads.incrementAndGet();
+            exchange.sendResponseHeaders(uploadStatus, -1);
+            exchange.close();
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClientFactory = HttpTestSupport.httpClientFactory(meterRegistry);
+        client = new S3UploadClient(httpClientFactory, meterRegistry, 60, 100, Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(client, "fileUploadEndpoint", base + "/form");
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClientFactory.dispose();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static SourceTree tree(String content) {
+        return InMemorySourceTree.builder(Long.MAX_VALUE)
+                .add("src/UserController.java", content.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("upload.cache.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    void reusesUploadForSameContent() {
+        Path file = Path.of("src/UserController.java");
+        try (SourceTree first = tree("class UserController {}"); SourceTree second = tree("class UserController {}")) {
+            String id = client.uploadFileToEndpoint(first, first.root().resolve(file), "jwt").block();
+            // Outro snapshot com o mesmo conteúdo reaproveita o upload
+            String again = client.uploadFileToEndpoint(second, second.root().resolve(file), "jwt").block();
+
+            assertEquals("upload-1", id);
+            assertTrue(lastUpload.contains("name=\"x-amz-signature\""));
+            assertTrue(lastUpload.contains("filename=\"UserController.java\""));
+            assertTrue(lastUpload.contains("class UserController {}"));
+            assertEquals(id, again);
+            assertEquals(1, formRequests.get());
+            assertEquals(1, fileUploads.get());
+            assertEquals(1, requests("hit"));
+            assertEquals(1, requests("miss"));
+        }
+    }
+
+    @Test
+    void uploadsAgainWhenContentChanges() {
+        Path file = Path.of("src/UserController.java");
+        try (SourceTree first = tree("class UserController {}");
+                SourceTree changed = tree("class UserController { void get() {} }")) {
+            String id = client.uploadFileToEndpoint(first, first.root().resolve(file), "jwt").block();
+            String other = client.uploadFileToEndpoint(changed, changed.root().resolve(file), "jwt").block();
+
+            assertNotEquals(id, other);
+            assertEquals(2, fileUploads.get());
+        }
+    }
+
+    @Test
+    void cachesOnlyTheUploadIdOnceUploadFinishes() {
+        try (SourceTree sources = tree("class UserController {}")) {
+            Path file = sources.root().resolve("src/UserController.java");
+            String id = client.uploadFileToEndpoint(sources, file, "jwt").block();
+
+            @SuppressWarnings("unchecked")
+            ExpiringLruCache<String, String> uploadIds = (ExpiringLruCache<String, String>) ReflectionTestUtils
+                    .getField(client, "uploadIds");
+            InFlightRequests<?, ?> inFlight = (InFlightRequests<?, ?>) ReflectionTestUtils.getField(client,
+                    "inFlight");
+            // O cache guarda apenas o id; o upload em andamento, que referencia o buffer, já foi descartado
+            assertEquals(id, uploadIds.get(ContentHash.gitBlobSha1(ByteBuffer.wrap(
+                    "class UserController {}".getBytes(StandardCharsets.UTF_8))) + "/UserController.java"));
+            assertEquals(1, uploadIds.size());
+            assertEquals(0, inFlight.size());
+        }
+    }
+
+    @Test
+    void rejectsMarginNotShorterThanExpiration() {
+        assertThrows(IllegalArgumentException.class, () -> new S3UploadClient(httpClientFactory,
+                new SimpleMeterRegistry(), 5, 100, Duration.ofMinutes(5)));
+        assertThrows(IllegalArgumentException.class, () -> new S3UploadClient(httpClientFactory,
+                new SimpleMeterRegistry(), 5, 100, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void failedUploadIsNotCached() {
+        try (SourceTree sources = tree("class UserController {}")) {
+            Path file = sources.root().resolve("src/UserController.java");
+            uploadStatus = 500;
+            assertThrows(RuntimeException.class, () -> client.uploadFileToEndpoint(sources, file, "jwt").block());
+
+            uploadStatus = 204;
+            assertEquals("upload-2", client.uploadFileToEndpoint(sources, file, "jwt").block());
+        }
+    }
+}
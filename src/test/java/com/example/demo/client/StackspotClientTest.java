@@ -0,0 +1,133 @@
+package com.example.demo.client;
+
+import com.example.demo.config.HttpClientFactory;
+import com.example.demo.config.HttpTestSupport;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StackspotClientTest {
+
+    private HttpServer server;
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile int expiresIn = 1200;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientFactory httpClientFactory;
+    private StackspotClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/token", exchange -> {
+            int request = tokenRequests.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"access_token\":\"token-" + request + "\",\"token_type\":\"bearer\",\"expires_in\":"
+                    + expiresIn + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/chat", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = ("data: {\"message\": \"Olá\"}\n\n"
+                    + "data: {\"message\": \", mundo\"}\n\n"
+                    + "data: {\"message\": null, \"tokens\": {\"output\": 2}}\n\n"
+                    + "data: [DONE]\n\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClientFactory = HttpTestSupport.httpClientFactory(meterRegistry);
+        client = new StackspotClient(httpClientFactory, meterRegistry);
+        ReflectionTestUtils.setField(client, "clientId", "id");
+        ReflectionTestUtils.setField(client, "clientSecret", "secret");
+        ReflectionTestUtils.setField(client, "tokenUrl",
+                "http://localhost:" + server.getAddress().getPort() + "/token");
+        ReflectionTestUtils.setField(client, "refreshAhead", Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        httpClientFactory.dispose();
+        server.stop(0);
+    }
+
+    private long refreshes(String result) {
+        return meterRegistry.get("oauth2.token.refresh").tag("result", result).timer().count();
+    }
+
+    @Test
+    void concurrentCallersShareOneRefresh() {
+        List<String> tokens = Flux.range(0, 20)
+                .flatMap(i -> client.getAccessToken(), 20)
+                .collectList()
+                .block();
+
+        assertEquals(20, tokens.size());
+        assertEquals(List.of("token-1"), tokens.stream().distinct().toList());
+        assertEquals("token-1", client.getAccessToken().block());
+        assertEquals(1, tokenRequests.get());
+        assertEquals(1, refreshes("success"));
+        assertEquals(19, meterRegistry.get("oauth2.token.coalesced").counter().count());
+    }
+
+    @Test
+    void refreshesAgainInsideExpirationSkew() {
+        // Vida útil menor que a margem de 5 minutos: cada chamada precisa renovar
+        expiresIn = 60;
+
+        assertEquals("token-1", client.getAccessToken().block());
+        assertEquals("token-2", client.getAccessToken().block());
+        assertEquals(2, refreshes("success"));
+    }
+
+    @Test
+    void failedRefreshIsNotCached() {
+        status = 500;
+        assertThrows(RuntimeException.class, () -> client.getAccessToken().block());
+        assertEquals(1, refreshes("failure"));
+
+        status = 200;
+        assertEquals("token-2", client.getAccessToken().block());
+    }
+
+    @Test
+    void streamsChatChunks() {
+        String chatUrl = "http://localhost:" + server.getAddress().getPort() + "/chat";
+
+        List<String> chunks = client.streamChatEndpoint(List.of("upload-1"), "prompt", "jwt", chatUrl)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("Olá", ", mundo"), chunks);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpClientFactoryTest {
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientFactory factory;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hello", exchange -> {
+            byte[] body = "olá".getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/hello";
+
+        meterRegistry = new SimpleMeterRegistry();
+        factory = new HttpClientFactory(HttpTestSupport.environment()
+                .withProperty("http.pool.small.max-connections", "3"), meterRegistry, WebClient.builder());
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.dispose();
+        server.stop(0);
+    }
+
+    private double gauge(String name, String pool) {
+        return meterRegistry.get(name).tag("pool", pool).gauge().value();
+    }
+
+    // A conexão volta ao pool logo depois que o corpo é entregue, em outra thread
+    private void awaitReleased(String pool) throws InterruptedException {
+        for (int i = 0; i < 100 && gauge("http.client.pool.connections.active", pool) > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, gauge("http.client.pool.connections.active", pool));
+    }
+
+    @Test
+    void reusesPooledConnectionAndDecompressesGzip() throws InterruptedException {
+        WebClient client = factory.webClient("default").build();
+
+        assertEquals("olá", client.get().uri(url).retrieve().bodyToMono(String.class).block());
+        awaitReleased("default");
+        assertEquals("olá", client.get().uri(url).retrieve().bodyToMono(String.class).block());
+        awaitReleased("default");
+
+        // A conexão volta ao pool após cada resposta e é reaproveitada pela seguinte
+        assertEquals(1, gauge("http.client.pool.connections.idle", "default"));
+        assertEquals(0, gauge("http.client.pool.pending", "default"));
+    }
+
+    @Test
+    void poolSettingsOverrideDefaults() {
+        factory.webClient("small").build().get().uri(url).retrieve().bodyToMono(String.class).block();
+        factory.webClient("default").build().get().uri(url).retrieve().bodyToMono(String.class).block();
+
+        assertEquals(3, gauge("http.client.pool.connections.max", "small"));
+        assertEquals(50, gauge("http.client.pool.connections.max", "default"));
+    }
+}
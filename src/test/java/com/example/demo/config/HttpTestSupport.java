@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * {@link HttpClientFactory} para testes, com os padrões de {@code http.pool.*} do application.properties.
+ */
+public final class HttpTestSupport {
+
+    private HttpTestSupport() {
+    }
+
+    public static MockEnvironment environment() {
+        MockEnvironment environment = new MockEnvironment();
+        // Mesma conversão do Spring Boot ("30s" -> Duration)
+        environment.setConversionService(new ApplicationConversionService());
+        return environment
+                .withProperty("http.pool.max-connections", "50")
+                .withProperty("http.pool.pending-acquire-max", "200")
+                .withProperty("http.pool.pending-acquire-timeout", "30s")
+                .withProperty("http.pool.max-idle-time", "20s")
+                .withProperty("http.pool.max-life-time", "5m")
+                .withProperty("http.pool.evict-interval", "30s")
+                .withProperty("http.pool.connect-timeout", "10s")
+                .withProperty("http.pool.keep-alive", "true")
+                .withProperty("http.pool.compression", "true")
+                .withProperty("http.pool.http2", "true");
+    }
+
+    public static HttpClientFactory httpClientFactory(MeterRegistry meterRegistry) {
+        return new HttpClientFactory(environment(), meterRegistry, WebClient.builder());
+    }
+}
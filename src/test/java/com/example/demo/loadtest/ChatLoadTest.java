@@ -0,0 +1,212 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.benchmark.SyntheticRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga de ponta a ponta em {@code /api/chat} com GitHub, IdM, upload e agentes substituídos por
+ * {@link FakeUpstreams}. Fora do {@code mvn test} padrão; rode com {@code mvn -Pload-test test}, ajustando
+ * {@code -Dloadtest.concurrency}, {@code -Dloadtest.requests} (por tipo), {@code -Dloadtest.warmup},
+ * {@code -Dloadtest.controllers}, {@code -Dloadtest.chat.latency-ms}, {@code -Dloadtest.chat.error-rate} e
+ * {@code -Dloadtest.upload.latency-ms}. Reporta throughput e latências p50/p99/p999 por tipo de requisição.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChatLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatLoadTest.class);
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final int REQUESTS_PER_TYPE = Integer.getInteger("loadtest.requests", 250);
+    private static final int WARMUP = Integer.getInteger("loadtest.warmup", 40);
+    private static final int CONTROLLERS = Integer.getInteger("loadtest.controllers", 300);
+    private static final Duration CHAT_LATENCY =
+            Duration.ofMillis(Long.getLong("loadtest.chat.latency-ms", 150));
+    private static final Duration UPLOAD_LATENCY =
+            Duration.ofMillis(Long.getLong("loadtest.upload.latency-ms", 20));
+    private static final double CHAT_ERROR_RATE = Double.parseDouble(
+            System.getProperty("loadtest.chat.error-rate", "0.02"));
+
+    private static FakeUpstreams upstreams;
+
+    @LocalServerPort
+    int port;
+
+    /**
+     * Um pedido do tipo: {@code controller} (scope existente, path novo: upload e chat), {@code controller_new}
+     * (nenhum match: só chat), {@code unit_test} (teste existente: dois uploads e chat) ou {@code direct}.
+     */
+    private record Call(String type, String body) {
+    }
+
+    private record Sample(String type, long nanos, int status) {
+    }
+
+    @DynamicPropertySource
+    static void upstreams(DynamicPropertyRegistry registry) {
+        try {
+            upstreams = new FakeUpstreams(new SyntheticRepository(CONTROLLERS, 4, 20), UPLOAD_LATENCY,
+                    CHAT_LATENCY, CHAT_ERROR_RATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("github.repo.url", () -> upstreams.url("/github/archive.zip"));
+        registry.add("oauth2.token.url", () -> upstreams.url("/idm/token"));
+        registry.add("file.upload.endpoint", () -> upstreams.url("/upload/form"));
+        registry.add("chat.endpoint.controller", () -> upstreams.url("/chat/controller"));
+        registry.add("chat.endpoint.test", () -> upstreams.url("/chat/test"));
+        registry.add("index.store.dir", () -> "");
+        registry.add("logging.level.com.example.demo", () -> "WARN");
+        registry.add("logging.level.com.example.demo.loadtest", () -> "INFO");
+    }
+
+    @AfterAll
+    static void stopUpstreams() {
+        upstreams.close();
+    }
+
+    @Test
+    void chatUnderLoad() throws InterruptedException {
+        Random random = new Random(42);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        run(client, calls(WARMUP / 4 + 1, random));
+        List<Call> calls = calls(REQUESTS_PER_TYPE, random);
+        long start = System.nanoTime();
+        List<Sample> samples = run(client, calls);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report(samples, elapsedSeconds);
+
+        assertEquals(calls.size(), samples.size());
+        long transportFailures = samples.stream().filter(sample -> sample.status() < 0).count();
+        long serverErrors = samples.stream().filter(sample -> sample.status() >= 500).count();
+        assertEquals(0, transportFailures, "requisições sem resposta");
+        assertTrue(samples.stream().allMatch(sample -> sample.status() == 200 || sample.status() >= 500),
+                "apenas respostas 200 ou falhas do agente eram esperadas");
+        assertTrue(serverErrors <= samples.size() * (CHAT_ERROR_RATE + 0.05),
+                "falhas acima da taxa de erro injetada: " + serverErrors);
+        // O snapshot é baixado uma vez e compartilhado por todas as análises
+        assertEquals(1, upstreams.downloads.get());
+    }
+
+    private static List<Call> calls(int perType, Random random) {
+        List<Call> calls = new ArrayList<>();
+        for (int n = 0; n < perType; n++) {
+            int controller = random.nextInt(CONTROLLERS);
+            String existingScope = SyntheticRepository.scope(controller, random.nextInt(4));
+            calls.add(new Call("controller", message(existingScope, "/v1/new-resource" + n, "controller")));
+            calls.add(new Call("controller_new", message("novo.scope" + n, "/v1/novo" + n, "controller")));
+            calls.add(new Call("unit_test", message(existingScope, SyntheticRepository.path(controller, 0),
+                    "unit_test")));
+            calls.add(new Call("direct", "{\"message\": \"Explique o fluxo de autorização " + n + "\"}"));
+        }
+        Collections.shuffle(calls, random);
+        return calls;
+    }
+
+    private static String message(String scope, String path, String type) {
+        return "{\"message\": \"scope: %s, path: %s\", \"type\": \"%s\"}".formatted(scope, path, type);
+    }
+
+    private List<Sample> run(HttpClient client, List<Call> calls) throws InterruptedException {
+        URI uri = URI.create("http://localhost:" + port + "/api/chat");
+        ConcurrentLinkedQueue<Sample> samples = new ConcurrentLinkedQueue<>();
+        // Malha fechada: CONCURRENCY usuários, cada um envia o próximo pedido assim que recebe a resposta
+        ExecutorService users = Executors.newFixedThreadPool(CONCURRENCY);
+        for (Call call : calls) {
+            users.execute(() -> samples.add(send(client, uri, call)));
+        }
+        users.shutdown();
+        assertTrue(users.awaitTermination(10, TimeUnit.MINUTES), "carga não terminou em 10 minutos");
+        return new ArrayList<>(samples);
+    }
+
+    private static Sample send(HttpClient client, URI uri, Call call) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                // Mede o pipeline completo: o cache de resultados não responde por ele
+                .header("Cache-Control", "no-cache")
+                .POST(HttpRequest.BodyPublishers.ofString(call.body()))
+                .build();
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = -1;
+        }
+        return new Sample(call.type(), System.nanoTime() - start, status);
+    }
+
+    private static void report(List<Sample> samples, double elapsedSeconds) {
+        Map<String, List<Sample>> byType = new LinkedHashMap<>(new TreeMap<>(samples.stream()
+                .collect(Collectors.groupingBy(Sample::type))));
+        byType.put("total", samples);
+
+        StringBuilder table = new StringBuilder(String.format(
+                "%nCarga: %d usuários, %.1f s, agente %d ms, erro %.0f%%%n",
+                CONCURRENCY, elapsedSeconds, CHAT_LATENCY.toMillis(), CHAT_ERROR_RATE * 100));
+        table.append(String.format("%-15s %8s %8s %10s %10s %10s %10s%n",
+                "tipo", "pedidos", "erros", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        byType.forEach((type, typeSamples) -> {
+            long[] latencies = typeSamples.stream().mapToLong(Sample::nanos).sorted().toArray();
+            long errors = typeSamples.stream().filter(sample -> sample.status() != 200).count();
+            table.append(String.format("%-15s %8d %8d %10.1f %10.1f %10.1f %10.1f%n", type, latencies.length,
+                    errors, latencies.length / elapsedSeconds, percentile(latencies, 0.50),
+                    percentile(latencies, 0.99), percentile(latencies, 0.999)));
+        });
+        table.append(String.format("Upstreams: %d downloads, %d tokens, %d uploads, %d chamadas ao agente "
+                + "(%d com erro)", upstreams.downloads.get(), upstreams.tokens.get(), upstreams.uploads.get(),
+                upstreams.chats.get(), upstreams.chatErrors.get()));
+        log.info(table.toString());
+    }
+
+    // Nearest-rank, em milissegundos
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.benchmark.SyntheticRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Substitutos locais do GitHub (zip com ETag), do IdM (token), do endpoint de formulário de upload, do S3
+ * (multipart) e dos agentes de chat, num único servidor HTTP. A latência e a taxa de erro do upload e do chat
+ * são configuráveis; cada requisição é atendida numa thread virtual, então a latência simulada não limita a
+ * concorrência.
+ */
+final class FakeUpstreams implements AutoCloseable {
+
+    static final String ETAG = "\"synthetic-1\"";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final byte[] archive;
+    private final Duration uploadLatency;
+    private final Duration chatLatency;
+    private final double chatErrorRate;
+
+    final AtomicInteger downloads = new AtomicInteger();
+    final AtomicInteger tokens = new AtomicInteger();
+    final AtomicInteger uploads = new AtomicInteger();
+    final AtomicInteger chats = new AtomicInteger();
+    final AtomicInteger chatErrors = new AtomicInteger();
+
+    FakeUpstreams(SyntheticRepository repository, Duration uploadLatency, Duration chatLatency,
+            double chatErrorRate) throws IOException {
+        this.archive = repository.zip();
+        this.uploadLatency = uploadLatency;
+        this.chatLatency = chatLatency;
+        this.chatErrorRate = chatErrorRate;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/github/archive.zip", this::archive);
+        server.createContext("/idm/token", this::token);
+        server.createContext("/upload/form", this::uploadForm);
+        server.createContext("/s3", this::s3Upload);
+        server.createContext("/chat/", this::chat);
+        server.start();
+    }
+
+    String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private void archive(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        downloads.incrementAndGet();
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.sendResponseHeaders(200, archive.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(archive);
+        }
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        respond(exchange, 200, "{\"access_token\": \"token-%d\", \"token_type\": \"bearer\", \"expires_in\": 1200}"
+                .formatted(tokens.incrementAndGet()));
+    }
+
+    private void uploadForm(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        pause(uploadLatency);
+        respond(exchange, 200, """
+                {"id": "upload-%d", "url": "%s", "form": {"key": "k", "x-amz-algorithm": "a",
+                "x-amz-credential": "c", "x-amz-date": "d", "x-amz-security-token": "t", "policy": "p",
+                "x-amz-signature": "s"}}
+                """.formatted(uploads.incrementAndGet(), url("/s3")));
+    }
+
+    private void s3Upload(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        pause(uploadLatency);
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        chats.incrementAndGet();
+        // Latência entre 50% e 150% da configurada, como a de um modelo gerando respostas de tamanhos variados
+        pause(chatLatency.multipliedBy(50 + ThreadLocalRandom.current().nextInt(101)).dividedBy(100));
+        if (ThreadLocalRandom.current().nextDouble() < chatErrorRate) {
+            chatErrors.incrementAndGet();
+            respond(exchange, 503, "{\"error\": \"agente indisponível\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"message\": \"Resposta sintética (%d bytes de pedido)\", \"stop_reason\": \"stop\"}"
+                .formatted(request.length()));
+    }
+
+    private static void pause(Duration latency) {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
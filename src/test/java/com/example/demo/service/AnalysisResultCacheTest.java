@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnalysisResultCacheTest {
+
+    private static final String REPO = "https://github.com/acme/users/archive/HEAD.zip";
+    private static final String AGENT = "http://agent/chat";
+    private static final AnalysisResultCache.Key KEY =
+            new AnalysisResultCache.Key(REPO, "\"sha-1\"", "users.read", "/users", "controller", AGENT);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnalysisResultCache cache;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AnalysisResultCache(meterRegistry, 10, Duration.ofMinutes(5));
+    }
+
+    private Mono<ResponseEntity<ApiResponse>> answer() {
+        return Mono.fromSupplier(() -> ResponseEntity.ok(new ApiResponse("resposta " + calls.incrementAndGet())));
+    }
+
+    private ResponseEntity<ApiResponse> get(AnalysisResultCache.Key key, boolean bypass) {
+        return cache.get(key, bypass, this::answer).block();
+    }
+
+    @Test
+    void servesRepeatedRequestsFromCache() {
+        assertEquals("MISS", get(KEY, false).getHeaders().getFirst(AnalysisResultCache.CACHE_STATUS_HEADER));
+        ResponseEntity<ApiResponse> cached = get(KEY, false);
+
+        assertEquals("resposta 1", cached.getBody().response());
+        assertEquals("HIT", cached.getHeaders().getFirst(AnalysisResultCache.CACHE_STATUS_HEADER));
+        assertEquals(1, calls.get());
+        assertEquals(0.5, meterRegistry.get("analysis.result.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void bypassRefreshesCachedResult() {
+        get(KEY, false);
+        assertEquals("resposta 2", get(KEY, true).getBody().response());
+        assertEquals("resposta 2", get(KEY, false).getBody().response());
+        assertEquals(1, meterRegistry.get("analysis.result.cache.requests").tag("result", "bypass").counter().count());
+    }
+
+    @Test
+    void keyIncludesRepositoryAndSnapshotAndIgnoresTypeCase() {
+        get(KEY, false);
+        get(new AnalysisResultCache.Key(REPO, "\"sha-1\"", "users.read", "/users", "CONTROLLER", AGENT), false);
+        assertEquals(1, calls.get());
+
+        get(new AnalysisResultCache.Key(REPO, "\"sha-2\"", "users.read", "/users", "controller", AGENT), false);
+        assertEquals(2, calls.get());
+
+        get(new AnalysisResultCache.Key("https://github.com/acme/orders/archive/HEAD.zip", "\"sha-1\"", "users.read",
+                "/users", "controller", AGENT), false);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void errorsAreNotCached() {
+        Mono<ResponseEntity<ApiResponse>> failure = Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return ResponseEntity.internalServerError().body(new ApiResponse("Erro no processamento: timeout"));
+        });
+        cache.get(KEY, false, () -> failure).block();
+        cache.get(KEY, false, () -> failure).block();
+
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.client.GithubClient;
+import com.example.demo.client.StackspotClient;
+import com.example.demo.dto.ApiRequest;
+import com.example.demo.dto.BatchResult;
+import com.example.demo.dto.ChatPlan;
+import com.example.demo.factory.ProcessorFactory;
+import com.example.demo.snapshot.InMemorySourceTree;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GithubAnalysisServiceTest {
+
+    private static final String AGENT = "http://agent/chat";
+    private static final String REPO = "https://github.com/acme/users/archive/HEAD.zip";
+    private static final String OTHER_REPO = "https://github.com/acme/orders/archive/HEAD.zip";
+
+    private final AtomicInteger tokenFetches = new AtomicInteger();
+    private final AtomicInteger chatCalls = new AtomicInteger();
+    private RepositorySnapshotCache snapshotCache;
+    private RepositoryIndexer repositoryIndexer;
+    private StackspotClient stackspotClient;
+    private GithubAnalysisService service;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        snapshotCache = mock(RepositorySnapshotCache.class);
+        when(snapshotCache.acquire(anyString())).thenAnswer(call -> Mono.just(snapshot(call.getArgument(0))));
+
+        GithubClient githubClient = mock(GithubClient.class);
+        when(githubClient.resolveArchiveUrl(any(), any())).thenAnswer(call -> {
+            String repoUrl = call.getArgument(0);
+            if (repoUrl == null) {
+                return REPO;
+            }
+            if (!repoUrl.startsWith("https://github.com/")) {
+                throw new IllegalArgumentException("Host não permitido: " + repoUrl);
+            }
+            return repoUrl + "/archive/HEAD.zip";
+        });
+
+        repositoryIndexer = mock(RepositoryIndexer.class);
+        when(repositoryIndexer.buildIndex(any(), anyString())).thenReturn(Mono.just(RepositoryIndex.of(List.of())));
+
+        stackspotClient = mock(StackspotClient.class);
+        when(stackspotClient.getAccessToken())
+                .thenReturn(Mono.fromSupplier(() -> "token-" + tokenFetches.incrementAndGet()));
+        when(stackspotClient.callChatEndpoint(any(), anyString(), anyString(), eq(AGENT)))
+                .thenAnswer(call -> {
+                    String prompt = call.getArgument(1);
+                    chatCalls.incrementAndGet();
+                    return prompt.contains("falha")
+                            ? Mono.error(new IllegalStateException("agente indisponível"))
+                            : Mono.just("{\"message\": \"resposta para " + prompt + "\"}")
+                                    .delayElement(Duration.ofMillis(200));
+                });
+
+        ProcessorFactory processorFactory = mock(ProcessorFactory.class);
+        when(processorFactory.getProcessor(anyString())).thenReturn((context, scope, path) -> Mono.just(
+                ChatPlan.chat("plano", AGENT, "scope: " + scope + ", path: " + path, "Erro no processamento: ")));
+
+        ControllerProcessor controllerProcessor = mock(ControllerProcessor.class);
+        when(controllerProcessor.processDirectMessage(anyString()))
+                .thenAnswer(call -> ChatPlan.chat("direta", AGENT, call.getArgument(0), "Erro no processamento: "));
+
+        meterRegistry = new SimpleMeterRegistry();
+        service = new GithubAnalysisService(githubClient, snapshotCache, repositoryIndexer, controllerProcessor,
+                processorFactory, new ChatResponder(stackspotClient, meterRegistry),
+                new AnalysisResultCache(meterRegistry, 10, Duration.ofMinutes(5)), 2, meterRegistry);
+    }
+
+    private static RepositorySnapshot snapshot(String repoUrl) {
+        return new RepositorySnapshot(repoUrl, "\"sha-1\"", InMemorySourceTree
+                .builder(Long.MAX_VALUE)
+                .add("repo-main/src/main/java/UserController.java", "class UserController {}"
+                        .getBytes(StandardCharsets.UTF_8))
+                .build());
+    }
+
+    @Test
+    void batchSharesSnapshotIndexAndToken() {
+        List<ApiRequest> requests = List.of(
+                new ApiRequest("scope: users.read, path: /users", null),
+                new ApiRequest("scope: users.write, path: /users", "controller"),
+                new ApiRequest("olá", null),
+                new ApiRequest("scope: falha, path: /boom", null),
+                new ApiRequest(" ", null));
+
+        List<BatchResult> results = service.analyzeBatch(requests, false)
+                .sort(Comparator.comparingInt(BatchResult::index))
+                .collectList()
+                .block();
+
+        assertEquals(5, results.size());
+        assertEquals("resposta para scope: users.read, path: /users", results.get(0).response());
+        assertEquals(200, results.get(1).status());
+        assertEquals("resposta para olá", results.get(2).response());
+        assertEquals(500, results.get(3).status());
+        assertEquals("Erro no processamento: agente indisponível", results.get(3).response());
+        assertEquals(400, results.get(4).status());
+
+        verify(snapshotCache, times(1)).acquire(REPO);
+        verify(repositoryIndexer, times(1)).buildIndex(any(), anyString());
+        assertEquals(1, tokenFetches.get());
+    }
+
+    @Test
+    void batchGroupsItemsByRepository() {
+        List<BatchResult> results = service.analyzeBatch(List.of(
+                new ApiRequest("scope: a, path: /a", null),
+                new ApiRequest("scope: b, path: /b", null, "https://github.com/acme/orders", null),
+                new ApiRequest("scope: c, path: /c", null, "https://github.com/acme/orders", null),
+                new ApiRequest("scope: d, path: /d", null, "https://evil.example/acme/orders", null)), false)
+                .sort(Comparator.comparingInt(BatchResult::index))
+                .collectList()
+                .block();
+
+        assertEquals(List.of(200, 200, 200, 400), results.stream().map(BatchResult::status).toList());
+        verify(snapshotCache, times(1)).acquire(REPO);
+        verify(snapshotCache, times(1)).acquire(OTHER_REPO);
+        verify(repositoryIndexer, times(2)).buildIndex(any(), anyString());
+        assertEquals(1, tokenFetches.get());
+    }
+
+    @Test
+    void batchReportsDownloadFailurePerItem() {
+        when(snapshotCache.acquire(anyString())).thenReturn(Mono.error(new IllegalStateException("GitHub fora do ar")));
+
+        List<BatchResult> results = service.analyzeBatch(List.of(
+                new ApiRequest("scope: a, path: /a", null),
+                new ApiRequest("scope: b, path: /b", null)), false).collectList().block();
+
+        assertEquals(2, results.size());
+        results.forEach(result -> assertEquals(500, result.status()));
+    }
+
+    @Test
+    void concurrentIdenticalAnalysesShareOnePipeline() {
+        List<String> responses = Flux.range(0, 10)
+                .flatMap(i -> service.analyzeRepository(REPO, "users.read", "/users",
+                        i % 2 == 0 ? "controller" : "CONTROLLER", false))
+                .map(response -> response.getBody().response())
+                .collectList()
+                .block();
+
+        assertEquals(10, responses.size());
+        responses.forEach(response -> assertEquals("resposta para scope: users.read, path: /users", response));
+        assertEquals(1, chatCalls.get());
+        verify(snapshotCache, times(1)).acquire(REPO);
+        assertEquals(9, meterRegistry.get("requests.coalesced").tag("stage", "analysis").counter().count());
+        for (String stage : List.of("snapshot", "index", "match", "upload", "chat")) {
+            assertEquals(1, meterRegistry.get("analysis.stage.duration")
+                    .tags("stage", stage, "type", "controller", "outcome", "success").timer().count(), stage);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.analysis.RepositoryIndexCodec;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexStoreTest {
+
+    private static final String REPO_URL = "https://github.com/example/repo/archive/main.zip";
+    private static final String DIR = "repo-main/src/main/java/";
+
+    @TempDir
+    Path storeDir;
+
+    private static SourceTree tree() {
+        InMemorySourceTree.Builder builder = InMemorySourceTree.builder(Long.MAX_VALUE);
+        builder.add(DIR + "PingController.java", """
+                @RestController
+                @RequestMapping("/ping")
+                public class PingController {
+                    @RequestMapping(value = {"/a", "/b"}, method = {RequestMethod.GET, RequestMethod.HEAD})
+                    @PreAuthorize("#oauth2.hasAnyScope('ping', 'pong')")
+                    public String ping() {
+                        return "pong";
+                    }
+
+                    @PreAuthorize("#oauth2.hasScope('admin')")
+                    public void helper() {
+                    }
+                }
+                """.getBytes(StandardCharsets.UTF_8));
+        builder.add(DIR + "Helper.java", "// Controller Mapping\nclass Helper {}".getBytes(StandardCharsets.UTF_8));
+        return builder.build();
+    }
+
+    @Test
+    void roundTripsIndexRelativeToSnapshotRoot() {
+        JavaSourceAnalyzer analyzer = new JavaSourceAnalyzer(AnalysisEngineType.JAVAPARSER, 1,
+                new SimpleMeterRegistry());
+        IndexStore store = new IndexStore(storeDir.toString());
+
+        try (SourceTree first = tree(); SourceTree second = tree()) {
+            RepositoryIndex index = analyzer.buildIndex(first, first.root().resolve(DIR).toString());
+            store.save(REPO_URL, "\"v1\"", first.root(), index);
+
+            RepositoryIndexCodec.Decoded loaded = store.load(REPO_URL).orElseThrow();
+            RepositoryIndex rebased = loaded.index().rebase(Path.of(""), second.root());
+
+            assertEquals("\"v1\"", loaded.etag());
+            assertEquals(index.rebase(first.root(), second.root()).endpoints(), rebased.endpoints());
+            assertEquals(index.entries().size(), rebased.entries().size());
+            assertEquals("GET,HEAD", rebased.byPath("/b").get(0).httpMethod());
+            assertEquals("/ping/b", rebased.byPath("/b").get(0).fullPath());
+            assertEquals(Optional.of(second.root().resolve(DIR + "PingController.java")),
+                    rebased.fileOf("PingController"));
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+
+    @Test
+    void ignoresMissingOrCorruptedIndex() throws IOException {
+        IndexStore store = new IndexStore(storeDir.toString());
+        assertTrue(store.load(REPO_URL).isEmpty());
+
+        store.save(REPO_URL, "\"v1\"", Path.of("/"), RepositoryIndex.of(List.of()));
+        try (var files = Files.list(storeDir)) {
+            Path file = files.findFirst().orElseThrow();
+            Files.write(file, new byte[] { 'R', 'I', 'D', 'X', 0 });
+        }
+        assertTrue(store.load(REPO_URL).isEmpty());
+    }
+
+    @Test
+    void disabledWithoutDirectory() {
+        IndexStore store = new IndexStore("");
+        store.save(REPO_URL, "\"v1\"", Path.of("/"), RepositoryIndex.of(List.of()));
+        assertTrue(store.load(REPO_URL).isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.enums.AnalysisEngineType;
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaSourceAnalyzerTest {
+
+    private static final String DIR = "repo-main/src/main/java/";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JavaSourceAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        analyzer = new JavaSourceAnalyzer(AnalysisEngineType.JAVAPARSER, 2, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        analyzer.shutdown();
+    }
+
+    private static String controller(String name, String scope, String path) {
+        return """
+                @RestController
+                public class %s {
+                    @GetMapping("%s")
+                    @PreAuthorize("#oauth2.hasScope('%s')")
+                    public String get() {
+                        return "ok";
+                    }
+                }
+                """.formatted(name, path, scope);
+    }
+
+    private static SourceTree tree(Map<String, String> files) {
+        InMemorySourceTree.Builder builder = InMemorySourceTree.builder(Long.MAX_VALUE);
+        files.forEach((name, source) -> builder.add(DIR + name, source.getBytes(StandardCharsets.UTF_8)));
+        return builder.build();
+    }
+
+    private RepositoryIndex index(SourceTree sources, RepositoryIndex previous) {
+        return analyzer.buildIndex(sources, sources.root().resolve(DIR).toString(), previous);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    void reparsesOnlyChangedAndAddedFiles() {
+        Map<String, String> v1 = new TreeMap<>(Map.of(
+                "AController.java", controller("AController", "a", "/a"),
+                "BController.java", controller("BController", "b", "/b"),
+                "Helper.java", "// Controller Mapping, mas não é um controller\nclass Helper {}"));
+        Map<String, String> v2 = new TreeMap<>(v1);
+        v2.put("BController.java", controller("BController", "b2", "/b"));
+        v2.remove("Helper.java");
+        v2.put("CController.java", controller("CController", "c", "/c"));
+
+        try (SourceTree first = tree(v1); SourceTree second = tree(v2)) {
+            RepositoryIndex previous = index(first, null);
+            assertEquals(3, counter("analyzer.files.parsed"));
+
+            RepositoryIndex incremental = index(second, previous);
+
+            assertEquals(5, counter("analyzer.files.parsed"));
+            assertEquals(1, counter("analyzer.files.reused"));
+            assertEquals(index(second, null).endpoints(), incremental.endpoints());
+            assertEquals(second.root().resolve(DIR + "AController.java"), incremental.byScope("a").get(0).file());
+            assertTrue(incremental.byScope("b").isEmpty());
+            assertEquals(1, incremental.byScope("c").size());
+        }
+    }
+
+    @Test
+    void countsFilesTheEngineCannotParse() {
+        try (SourceTree sources = tree(Map.of(
+                "AController.java", controller("AController", "a", "/a"),
+                "Broken.java", "@RestController public class Broken { @GetMapping(\"/x\") void x( }"))) {
+            RepositoryIndex index = index(sources, null);
+
+            assertEquals(1, index.byScope("a").size());
+            assertEquals(2, counter("analyzer.files.parsed"));
+            assertEquals(1, counter("analyzer.files.failed"));
+        }
+    }
+}
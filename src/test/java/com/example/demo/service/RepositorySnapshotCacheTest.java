@@ -0,0 +1,303 @@
+package com.example.demo.service;
+
+import com.example.demo.analysis.RepositoryIndex;
+import com.example.demo.client.GithubClient;
+import com.example.demo.config.HttpTestSupport;
+import com.example.demo.enums.SnapshotBackend;
+import com.example.demo.snapshot.InMemorySourceTree;
+import com.example.demo.snapshot.SourceTree;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositorySnapshotCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private volatile String currentEtag = "\"sha-1\"";
+    private volatile long downloadDelayMillis;
+    private String repoUrl;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/archive.zip", exchange -> {
+            String etag = currentEtag;
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            try {
+                Thread.sleep(downloadDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] zip = archive(etag);
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.sendResponseHeaders(200, zip.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(zip);
+            }
+        });
+        server.start();
+        repoUrl = "http://localhost:" + server.getAddress().getPort() + "/archive.zip";
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private RepositorySnapshotCache cache(Duration maxAge) {
+        return cache(maxAge, SnapshotBackend.FILESYSTEM);
+    }
+
+    private RepositorySnapshotCache cache(Duration maxAge, SnapshotBackend backend) {
+        return cache(maxAge, backend, 20);
+    }
+
+    private RepositorySnapshotCache cache(Duration maxAge, SnapshotBackend backend, int maxRepos) {
+        return cache(maxAge, backend, maxRepos, Long.MAX_VALUE);
+    }
+
+    private RepositorySnapshotCache cache(Duration maxAge, SnapshotBackend backend, int maxRepos,
+            long maxMemoryBytes) {
+        WorkspaceManager workspaceManager = new WorkspaceManager(tempDir.toString(), Long.MAX_VALUE);
+        GithubClient githubClient = new GithubClient(HttpTestSupport.httpClientFactory(meterRegistry), meterRegistry);
+        ResourceManager resourceManager = new ResourceManager(workspaceManager, backend, maxMemoryBytes,
+                meterRegistry);
+        return new RepositorySnapshotCache(githubClient, resourceManager, meterRegistry, maxAge, maxRepos,
+                Long.MAX_VALUE);
+    }
+
+    private static byte[] archive(String version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("repo-main/src/main/java/PingController.java"));
+            zip.write(("// " + version).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("repo-main/docs/logo.png"));
+            zip.write(new byte[] { 1, 2, 3 });
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("snapshot.cache.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    void reusesSnapshotWithinMaxAgeWithoutRequests() {
+        RepositorySnapshotCache cache = cache(Duration.ofMinutes(5));
+
+        RepositorySnapshot first = cache.acquire(repoUrl).block();
+        RepositorySnapshot second = cache.acquire(repoUrl).block();
+
+        assertSame(first, second);
+        assertEquals(1, downloads.get());
+        assertEquals(0, notModified.get());
+        assertTrue(Files.exists(Path.of(first.extractDir(), "repo-main/src/main/java/PingController.java")));
+        assertFalse(Files.exists(Path.of(first.extractDir(), "repo-main/docs/logo.png")));
+        assertEquals(1, requests("miss"));
+        assertEquals(1, requests("hit"));
+        first.release();
+        second.release();
+    }
+
+    @Test
+    void revalidatesWithIfNoneMatchAfterMaxAge() {
+        RepositorySnapshotCache cache = cache(Duration.ZERO);
+
+        RepositorySnapshot first = cache.acquire(repoUrl).block();
+        first.release();
+        RepositorySnapshot second = cache.acquire(repoUrl).block();
+
+        assertSame(first, second);
+        assertEquals(1, downloads.get());
+        assertEquals(1, notModified.get());
+        assertEquals(1, requests("not_modified"));
+        assertEquals(1, meterRegistry.get("github.download.duration").tag("status", "200").timer().count());
+        assertEquals(1, meterRegistry.get("github.download.duration").tag("status", "304").timer().count());
+        assertEquals(1, meterRegistry.get("snapshot.extract.duration").timer().count());
+        assertEquals(1, meterRegistry.get("snapshot.extract.files").counter().count());
+        assertEquals(first.sources().sizeInBytes(),
+                meterRegistry.get("snapshot.extract.bytes").counter().count());
+        second.release();
+    }
+
+    @Test
+    void replacesSnapshotWhenEtagChanges() throws InterruptedException {
+        RepositorySnapshotCache cache = cache(Duration.ZERO);
+
+        RepositorySnapshot first = cache.acquire(repoUrl).block();
+        currentEtag = "\"sha-2\"";
+        RepositorySnapshot second = cache.acquire(repoUrl).block();
+
+        assertNotEquals(first.extractDir(), second.extractDir());
+        assertEquals("\"sha-2\"", second.etag());
+        assertEquals(2, downloads.get());
+        assertTrue(Files.exists(Path.of(first.extractDir())), "snapshot em uso não pode ser removido");
+
+        first.release();
+        for (int i = 0; i < 50 && Files.exists(Path.of(first.extractDir())); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(Files.exists(Path.of(first.extractDir())));
+        second.release();
+    }
+
+    @Test
+    void keepsSourcesInMemoryWithMemoryBackend() throws IOException {
+        RepositorySnapshotCache cache = cache(Duration.ofMinutes(5), SnapshotBackend.MEMORY);
+
+        RepositorySnapshot snapshot = cache.acquire(repoUrl).block();
+        SourceTree sources = snapshot.sources();
+        Path controller = sources.root().resolve("repo-main/src/main/java/PingController.java");
+
+        assertTrue(sources.isDirectory(sources.root().resolve("repo-main/src/main/java")));
+        assertFalse(sources.isDirectory(sources.root().resolve("repo-main/docs")));
+        assertEquals(List.of(controller), sources.walk(sources.root()).toList());
+        assertEquals("// \"sha-1\"", sources.readString(controller));
+        assertFalse(Files.exists(controller));
+        snapshot.release();
+    }
+
+    @Test
+    void sharesMemoryBudgetAcrossSnapshots() {
+        // Cada snapshot ocupa 10 bytes: cabe um, não dois
+        RepositorySnapshotCache cache = cache(Duration.ofMinutes(5), SnapshotBackend.MEMORY, 20, 15);
+
+        RepositorySnapshot users = cache.acquire(repoUrl + "?repo=users").block();
+        assertThrows(IllegalStateException.class, () -> cache.acquire(repoUrl + "?repo=orders").block());
+
+        // A extração que falhou devolveu a sua reserva; a do snapshot aberto continua contada
+        assertEquals(10, meterRegistry.get("snapshot.memory.bytes").gauge().value());
+        users.release();
+    }
+
+    @Test
+    void closingMemorySnapshotReturnsItsBudget() {
+        AtomicLong usedBytes = new AtomicLong();
+        SourceTree first = InMemorySourceTree.builder(usedBytes, 16).add("A.java", new byte[10]).build();
+        InMemorySourceTree.Builder second = InMemorySourceTree.builder(usedBytes, 16);
+
+        assertThrows(IllegalStateException.class, () -> second.add("B.java", new byte[10]));
+        first.close();
+        first.close();
+        assertEquals(0, usedBytes.get());
+        second.add("B.java", new byte[10]).build();
+        assertEquals(10, usedBytes.get());
+    }
+
+    @Test
+    void failedIndexBuildIsNotCachedAfterCallerCancels() {
+        SourceTree sources = InMemorySourceTree.builder(Long.MAX_VALUE).build();
+        RepositorySnapshot snapshot = new RepositorySnapshot(repoUrl, "\"sha-1\"", sources);
+        RepositoryIndex built = RepositoryIndex.of(List.of());
+        AtomicInteger rebuilds = new AtomicInteger();
+
+        snapshot.index(() -> Mono.delay(Duration.ofMillis(50))
+                        .then(Mono.<RepositoryIndex>error(new IllegalStateException("falha no índice"))))
+                .subscribe(index -> {
+                }, error -> {
+                })
+                .dispose();
+
+        // Enquanto a falha estiver em cache, o builder novo não é chamado; espera até a montagem recomeçar
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        RepositoryIndex rebuilt = null;
+        while (rebuilds.get() == 0 && System.nanoTime() < deadline) {
+            rebuilt = snapshot.index(() -> {
+                rebuilds.incrementAndGet();
+                return Mono.just(built);
+            }).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(5));
+        }
+
+        assertEquals(1, rebuilds.get());
+        assertSame(built, rebuilt);
+        snapshot.release();
+    }
+
+    @Test
+    void concurrentCallersShareOneDownload() {
+        RepositorySnapshotCache cache = cache(Duration.ofMinutes(5));
+        downloadDelayMillis = 300;
+
+        List<RepositorySnapshot> snapshots = Flux.range(0, 10)
+                .flatMap(i -> cache.acquire(repoUrl))
+                .collectList()
+                .block();
+
+        assertEquals(1, downloads.get());
+        assertEquals(1, snapshots.stream().distinct().count());
+        assertEquals(9, meterRegistry.get("requests.coalesced").tag("stage", "download").counter().count());
+
+        // Cada chamador recebeu a sua referência: as fontes continuam abertas até a última liberação
+        snapshots.forEach(RepositorySnapshot::release);
+        assertTrue(Files.exists(
+                Path.of(snapshots.get(0).extractDir(), "repo-main/src/main/java/PingController.java")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedRepositoryBeyondPoolLimit() throws InterruptedException {
+        RepositorySnapshotCache cache = cache(Duration.ofMinutes(5), SnapshotBackend.FILESYSTEM, 2);
+
+        RepositorySnapshot users = cache.acquire(repoUrl + "?repo=users").block();
+        RepositorySnapshot orders = cache.acquire(repoUrl + "?repo=orders").block();
+        users.release();
+        orders.release();
+        // users passa a ser o mais recente; orders é o descartado quando o terceiro repositório chega
+        cache.acquire(repoUrl + "?repo=users").block().release();
+        cache.acquire(repoUrl + "?repo=billing").block().release();
+
+        assertEquals(1, meterRegistry.get("snapshot.pool.evictions").counter().count());
+        assertEquals(2, meterRegistry.get("snapshot.pool.repositories").gauge().value());
+        for (int i = 0; i < 50 && Files.exists(Path.of(orders.extractDir())); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(Files.exists(Path.of(orders.extractDir())));
+        assertTrue(Files.exists(Path.of(users.extractDir())));
+
+        cache.acquire(repoUrl + "?repo=users").block().release();
+        assertEquals(3, downloads.get());
+        cache.acquire(repoUrl + "?repo=orders").block().release();
+        assertEquals(4, downloads.get());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.util.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceManagerTest {
+
+    private static final long MAX_DISK_BYTES = 100_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stopsLargeEntryAsSoonAsQuotaIsExceeded() throws IOException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(tempDir.toString(), MAX_DISK_BYTES);
+        Workspace workspace = workspaceManager.acquire().block();
+        byte[] zip = zip("repo-main/src/main/java/Generated.java", 4 * 1024 * 1024);
+
+        try (InputStream in = new ByteArrayInputStream(zip)) {
+            assertThrows(IllegalStateException.class, () -> FileUtils.unzipStream(in, workspace.root().toString(),
+                    FileUtils::isAnalysisSource, bytes -> workspaceManager.recordUsage(workspace, bytes)));
+        }
+
+        // A entrada de 4 MB é interrompida no primeiro trecho que ultrapassa a cota, não depois de gravada
+        long written = Files.size(workspace.root().resolve("repo-main/src/main/java/Generated.java"));
+        assertTrue(written <= MAX_DISK_BYTES, "gravados " + written + " bytes");
+    }
+
+    private static byte[] zip(String name, int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(new byte[size]);
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+}